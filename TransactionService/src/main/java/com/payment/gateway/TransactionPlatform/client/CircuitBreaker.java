@@ -0,0 +1,131 @@
+package com.payment.gateway.TransactionPlatform.client;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * CLOSED: outcomes of the last window-size calls are kept; once at least min-calls are recorded and the
+ * failure rate reaches the threshold, the breaker OPENs. OPEN: every call is rejected until open-duration
+ * has passed. HALF_OPEN: up to half-open-permits trial calls are let through; the first success closes the
+ * breaker (with a fresh window), any failure opens it again.
+ *
+ * State changes are rare and tiny, so a lock is simpler than a lock-free scheme; a ReentrantLock rather than
+ * synchronized so virtual threads calling through it are never pinned.
+ */
+class CircuitBreaker {
+
+	enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final boolean[] failedWindow;
+	private final int minCalls;
+	private final double failureRateThreshold;
+	private final long openNanos;
+	private final int halfOpenPermits;
+
+	private State state = State.CLOSED;
+	private int next;
+	private int recorded;
+	private int failures;
+	private long openedAt;
+	private int halfOpenInFlight;
+
+	CircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, Duration openDuration, int halfOpenPermits) {
+		this.failedWindow = new boolean[windowSize];
+		this.minCalls = minCalls;
+		this.failureRateThreshold = failureRateThreshold;
+		this.openNanos = openDuration.toNanos();
+		this.halfOpenPermits = halfOpenPermits;
+	}
+
+	// False means fail fast: the breaker is open, or half-open with all trial permits taken.
+	boolean tryAcquire() {
+		lock.lock();
+		try {
+			if (state == State.OPEN) {
+				if (System.nanoTime() - openedAt < openNanos) {
+					return false;
+				}
+				state = State.HALF_OPEN;
+				halfOpenInFlight = 0;
+			}
+			if (state == State.HALF_OPEN) {
+				if (halfOpenInFlight >= halfOpenPermits) {
+					return false;
+				}
+				halfOpenInFlight++;
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void onSuccess() {
+		lock.lock();
+		try {
+			if (state == State.HALF_OPEN) {
+				state = State.CLOSED;
+				resetWindow();
+			} else {
+				record(false);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void onFailure() {
+		lock.lock();
+		try {
+			if (state == State.HALF_OPEN) {
+				open();
+				return;
+			}
+			record(true);
+			if (state == State.CLOSED && recorded >= minCalls && (double) failures / recorded >= failureRateThreshold) {
+				open();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	State state() {
+		lock.lock();
+		try {
+			return state;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void record(boolean failed) {
+		if (recorded == failedWindow.length) {
+			if (failedWindow[next]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		failedWindow[next] = failed;
+		if (failed) {
+			failures++;
+		}
+		next = (next + 1) % failedWindow.length;
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		resetWindow();
+	}
+
+	private void resetWindow() {
+		next = 0;
+		recorded = 0;
+		failures = 0;
+	}
+}
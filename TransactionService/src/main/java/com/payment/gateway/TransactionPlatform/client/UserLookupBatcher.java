@@ -0,0 +1,88 @@
+package com.payment.gateway.TransactionPlatform.client;
+
+import com.payment.gateway.TransactionPlatform.client.dto.UserServiceResponse;
+import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import com.payment.gateway.TransactionPlatform.services.MicroBatcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Micro-batches user lookups for UserServiceClient (user.service.batch.enabled).
+ *
+ * Callers enqueue a userId and wait on a future. A MicroBatcher thread takes whatever is queued,
+ * lingers up to linger-micros for more (up to max-batch ids) and resolves the whole group with one
+ * POST /api/v1/users:batchGet. Ids missing from the answer fail with UserNotFoundException, a failed
+ * batch call fails every caller in it.
+ */
+class UserLookupBatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(UserLookupBatcher.class);
+
+	private final Function<List<String>, Map<String, UserServiceResponse>> batchCall;
+	private final int maxBatch;
+	private final long lingerMicros;
+	private final MicroBatcher<PendingLookup> batcher;
+	private final DistributionSummary batchSize;
+
+	UserLookupBatcher(Function<List<String>, Map<String, UserServiceResponse>> batchCall,
+			MeterRegistry meterRegistry,
+			int maxBatch,
+			long lingerMicros,
+			int queueCapacity) {
+		this.batchCall = batchCall;
+		this.maxBatch = maxBatch;
+		this.lingerMicros = lingerMicros;
+		this.batcher = new MicroBatcher<>("user-lookup-batcher", maxBatch, lingerMicros, queueCapacity,
+				this::dispatch, PendingLookup::result, () -> new UserServiceException("User lookup batcher stopped"));
+		this.batchSize = DistributionSummary.builder("user.client.batch.size")
+				.description("User ids resolved per batchGet call")
+				.register(meterRegistry);
+	}
+
+	void start() {
+		batcher.start();
+		log.info("UserLookupBatcher: started (maxBatch={}, lingerMicros={})", maxBatch, lingerMicros);
+	}
+
+	// Returns null when the batcher is stopped or full; the caller then does a single lookup itself.
+	CompletableFuture<UserServiceResponse> submit(String userId) {
+		PendingLookup pending = new PendingLookup(userId, new CompletableFuture<>());
+		if (!batcher.offer(pending)) {
+			return null;
+		}
+		return pending.result();
+	}
+
+	private void dispatch(List<PendingLookup> batch) {
+		List<String> userIds = new ArrayList<>(new LinkedHashSet<>(batch.stream().map(PendingLookup::userId).toList()));
+		batchSize.record(userIds.size());
+		try {
+			Map<String, UserServiceResponse> users = batchCall.apply(userIds);
+			for (PendingLookup lookup : batch) {
+				UserServiceResponse user = users.get(lookup.userId());
+				if (user != null) {
+					lookup.result().complete(user);
+				} else {
+					lookup.result().completeExceptionally(new UserServiceException.UserNotFoundException(lookup.userId()));
+				}
+			}
+		} catch (Exception e) {
+			batch.forEach(lookup -> lookup.result().completeExceptionally(e));
+		}
+	}
+
+	void shutdown() {
+		batcher.shutdown();
+	}
+
+	private record PendingLookup(String userId, CompletableFuture<UserServiceResponse> result) {}
+}
@@ -1,42 +1,239 @@
 package com.payment.gateway.TransactionPlatform.client;
 
+import com.payment.gateway.TransactionPlatform.client.dto.UserBatchRequest;
+import com.payment.gateway.TransactionPlatform.client.dto.UserBatchResponse;
 import com.payment.gateway.TransactionPlatform.client.dto.UserServiceResponse;
 import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import com.payment.gateway.UserRpc.UserRecord;
+import com.payment.gateway.UserRpc.UserRpcClient;
+import com.payment.gateway.UserRpc.UserRpcException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
 @Component
 public class UserServiceClient {
 
 	private static final Logger log = LoggerFactory.getLogger(UserServiceClient.class);
 
 	private final RestClient restClient;
+	private final UserServiceResilience resilience;
+	private final Counter coalescedLookups;
+	// Null unless user.service.batch.enabled: lookups are then resolved in micro-batches via users:batchGet.
+	private final UserLookupBatcher batcher;
+	// Null unless user.service.transport=binary: single lookups then go over the binary RPC channel, REST is the fallback.
+	private final UserRpcClient rpcClient;
+	private final Counter transportFallbacks;
+	private final Counter revalidatedUnchanged;
+	private final Counter revalidatedChanged;
+
+	// Single-flight: one outstanding GET per userId; concurrent callers share its result or exception.
+	private final Map<String, CompletableFuture<UserServiceResponse>> inFlight = new ConcurrentHashMap<>();
 
 	public UserServiceClient(
 			RestClient.Builder restClientBuilder,
-			@Value("${user.service.base-url}") String baseUrl) {
-		this.restClient = restClientBuilder.baseUrl(baseUrl).build();
+			UserServiceResilience resilience,
+			MeterRegistry meterRegistry,
+			@Value("${user.service.base-url}") String baseUrl,
+			@Value("${user.service.connect-timeout-ms:500}") long connectTimeoutMs,
+			@Value("${user.service.read-timeout-ms:2000}") long readTimeoutMs,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+			@Value("${user.service.batch.enabled:false}") boolean batchEnabled,
+			@Value("${user.service.batch.max-batch:100}") int batchMaxSize,
+			@Value("${user.service.batch.linger-micros:300}") long batchLingerMicros,
+			@Value("${user.service.batch.queue-capacity:10000}") int batchQueueCapacity,
+			@Value("${user.service.transport:rest}") String transport,
+			@Value("${user.service.rpc.host:localhost}") String rpcHost,
+			@Value("${user.service.rpc.port:9082}") int rpcPort,
+			@Value("${user.service.rpc.reconnect-backoff-ms:1000}") long rpcReconnectBackoffMs) {
+		// Bounded connect/read time so a hung User Service cannot hold a request thread indefinitely.
+		ClientHttpRequestFactory requestFactory = virtualThreads
+				? virtualThreadRequestFactory(Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(readTimeoutMs))
+				: platformRequestFactory(Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(readTimeoutMs));
+		this.restClient = restClientBuilder.baseUrl(baseUrl).requestFactory(requestFactory).build();
+		this.resilience = resilience;
+		this.coalescedLookups = Counter.builder("user.client.coalesced")
+				.description("User lookups served by joining an identical in-flight request")
+				.register(meterRegistry);
+		this.batcher = batchEnabled
+				? new UserLookupBatcher(userIds -> resilience.execute(() -> batchGet(userIds), false), meterRegistry, batchMaxSize, batchLingerMicros, batchQueueCapacity)
+				: null;
+		this.rpcClient = "binary".equalsIgnoreCase(transport)
+				? new UserRpcClient(rpcHost, rpcPort, connectTimeoutMs, readTimeoutMs, rpcReconnectBackoffMs)
+				: null;
+		this.transportFallbacks = Counter.builder("user.client.transport.fallback")
+				.description("User lookups sent over REST because the binary RPC channel was unavailable")
+				.register(meterRegistry);
+		this.revalidatedUnchanged = revalidationCounter(meterRegistry, "not_modified");
+		this.revalidatedChanged = revalidationCounter(meterRegistry, "modified");
+	}
+
+	private static Counter revalidationCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("user.client.revalidation")
+				.description("Conditional user re-fetches by outcome")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	private static ClientHttpRequestFactory platformRequestFactory(Duration connectTimeout, Duration readTimeout) {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(connectTimeout);
+		requestFactory.setReadTimeout(readTimeout);
+		return requestFactory;
+	}
+
+	// JDK HttpClient (pooled keep-alive connections, lock-based, no pinning) running its async work on virtual threads.
+	private static ClientHttpRequestFactory virtualThreadRequestFactory(Duration connectTimeout, Duration readTimeout) {
+		HttpClient httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(connectTimeout)
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.build();
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(readTimeout);
+		return requestFactory;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (batcher != null) {
+			batcher.start();
+		}
 	}
 
+	@PreDestroy
+	public void shutdown() {
+		if (batcher != null) {
+			batcher.shutdown();
+		}
+		if (rpcClient != null) {
+			rpcClient.close();
+		}
+	}
+
+	/**
+	 * Look up a user. Callers arriving while a lookup for the same userId is already in flight wait for
+	 * that call instead of issuing their own; nothing is kept once it completes, so there is no staleness.
+	 */
 	public UserServiceResponse getUser(String userId) {
+		CompletableFuture<UserServiceResponse> call = new CompletableFuture<>();
+		CompletableFuture<UserServiceResponse> existing = inFlight.putIfAbsent(userId, call);
+		if (existing != null) {
+			coalescedLookups.increment();
+			return join(existing);
+		}
+		try {
+			UserServiceResponse user = lookup(userId);
+			call.complete(user);
+			return user;
+		} catch (RuntimeException e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(userId, call);
+		}
+	}
+
+	private static UserServiceResponse join(CompletableFuture<UserServiceResponse> call) {
+		try {
+			return call.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Re-fetch a user the caller already holds, as GET with If-None-Match: etag. On 304 the held user is
+	 * returned as is: no body is sent and the User Service only reads the user's version. Without an etag
+	 * this is a plain GET that picks one up for next time. Always REST (ETags are an HTTP feature), never
+	 * coalesced or batched, still behind the bulkhead and breaker.
+	 */
+	public VersionedUser revalidate(String userId, UserServiceResponse held, String etag) {
+		return resilience.execute(() -> conditionalFetch(userId, held, etag), true);
+	}
+
+	// Through the batcher when enabled (and not saturated), otherwise a single GET behind the bulkhead/breaker.
+	private UserServiceResponse lookup(String userId) {
+		if (batcher != null) {
+			CompletableFuture<UserServiceResponse> batched = batcher.submit(userId);
+			if (batched != null) {
+				return join(batched);
+			}
+		}
+		return resilience.execute(() -> fetchUser(userId), true);
+	}
+
+	// One POST /api/v1/users:batchGet for many ids; ids missing from the result do not exist.
+	private Map<String, UserServiceResponse> batchGet(List<String> userIds) {
 		try {
-			return restClient.get()
-					.uri("/api/v1/users/{userId}", userId)
+			UserBatchResponse response = restClient.post()
+					.uri("/api/v1/users:batchGet")
+					.contentType(MediaType.APPLICATION_JSON)
+					.body(new UserBatchRequest(userIds))
 					.retrieve()
-					.onStatus(HttpStatusCode::is4xxClientError, (request, response) -> {
-						if (response.getStatusCode().value() == 404) {
-							throw new UserServiceException.UserNotFoundException(userId);
-						}
-						throw new UserServiceException("User service returned " + response.getStatusCode());
+					.onStatus(HttpStatusCode::isError, (request, res) -> {
+						throw new UserServiceException("User service returned " + res.getStatusCode() + " for batchGet");
 					})
-					.onStatus(HttpStatusCode::is5xxServerError, (request, response) -> {
-						throw new UserServiceException("User service unavailable: " + response.getStatusCode());
-					})
-					.body(UserServiceResponse.class);
+					.body(UserBatchResponse.class);
+			Map<String, UserServiceResponse> users = new HashMap<>();
+			if (response != null && response.users() != null) {
+				response.users().forEach(user -> users.put(user.userId(), user));
+			}
+			return users;
+		} catch (UserServiceException e) {
+			throw e;
+		} catch (Exception e) {
+			log.error("Failed to call User Service batchGet for {} users: {}", userIds.size(), e.getMessage());
+			throw new UserServiceException("Could not reach User Service", e);
+		}
+	}
+
+	// Over the binary RPC channel when configured; REST whenever that channel cannot carry the lookup.
+	private UserServiceResponse fetchUser(String userId) {
+		if (rpcClient != null) {
+			try {
+				UserRecord user = rpcClient.getUser(userId)
+						.orElseThrow(() -> new UserServiceException.UserNotFoundException(userId));
+				return new UserServiceResponse(user.userId(), user.email(), user.name(), user.phone(), user.kycStatus());
+			} catch (UserRpcException.Unavailable e) {
+				transportFallbacks.increment();
+				log.debug("User Service RPC unavailable for userId {}, using REST: {}", userId, e.getMessage());
+			} catch (UserRpcException e) {
+				log.error("Failed to call User Service RPC for userId {}: {}", userId, e.getMessage());
+				throw new UserServiceException(e.getMessage(), e);
+			}
+		}
+		return fetchUserOverRest(userId);
+	}
+
+	private UserServiceResponse fetchUserOverRest(String userId) {
+		try {
+			return userGet(userId, null).body(UserServiceResponse.class);
 		} catch (UserServiceException e) {
 			throw e;
 		} catch (Exception e) {
@@ -44,4 +241,45 @@ public class UserServiceClient {
 			throw new UserServiceException("Could not reach User Service", e);
 		}
 	}
+
+	private VersionedUser conditionalFetch(String userId, UserServiceResponse held, String etag) {
+		try {
+			ResponseEntity<UserServiceResponse> response = userGet(userId, etag).toEntity(UserServiceResponse.class);
+			if (response.getStatusCode().value() == 304) {
+				revalidatedUnchanged.increment();
+				return new VersionedUser(held, etag);
+			}
+			revalidatedChanged.increment();
+			return new VersionedUser(response.getBody(), response.getHeaders().getETag());
+		} catch (UserServiceException e) {
+			throw e;
+		} catch (Exception e) {
+			log.error("Failed to revalidate userId {} with User Service: {}", userId, e.getMessage());
+			throw new UserServiceException("Could not reach User Service", e);
+		}
+	}
+
+	// GET /api/v1/users/{userId}, conditional when etag is set; 404 becomes UserNotFoundException, other errors UserServiceException.
+	private RestClient.ResponseSpec userGet(String userId, String etag) {
+		return restClient.get()
+				.uri("/api/v1/users/{userId}", userId)
+				.headers(headers -> {
+					if (etag != null) {
+						headers.setIfNoneMatch(etag);
+					}
+				})
+				.retrieve()
+				.onStatus(HttpStatusCode::is4xxClientError, (request, response) -> {
+					if (response.getStatusCode().value() == 404) {
+						throw new UserServiceException.UserNotFoundException(userId);
+					}
+					throw new UserServiceException("User service returned " + response.getStatusCode());
+				})
+				.onStatus(HttpStatusCode::is5xxServerError, (request, response) -> {
+					throw new UserServiceException("User service unavailable: " + response.getStatusCode());
+				});
+	}
+
+	/** A user and the ETag it was served with (null if the User Service sent none). */
+	public record VersionedUser(UserServiceResponse user, String etag) {}
 }
@@ -0,0 +1,272 @@
+package com.payment.gateway.TransactionPlatform.client;
+
+import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Resilience around remote User Service calls made by UserServiceClient (timeouts live on its RestClient).
+ *
+ * - Bulkhead: at most max-concurrent calls in flight; a caller waits up to max-wait-ms for a slot and is
+ *   then rejected, so a slow User Service can tie up only that many request threads.
+ * - Circuit breaker (see CircuitBreaker): when too many recent calls fail, calls are rejected immediately
+ *   until the open period has passed. 404s count as successes, they are answers.
+ * - Hedging (optional, idempotent reads only): if a call has not answered after the current p95 latency
+ *   (floored at min-delay-ms), a second identical call is sent and the first success wins. Every attempt
+ *   holds its own bulkhead permit until it finishes, even after the caller has its answer; the backup is
+ *   skipped when no permit is free, so hedging never pushes in-flight calls past max-concurrent.
+ * Rejections surface as UserServiceException (503 to our client).
+ *
+ * Metrics: user.client.request (latency), user.client.rejected{reason}, user.client.hedged,
+ * user.client.hedge.skipped, user.client.breaker.state (0 closed, 1 open, 2 half-open),
+ * user.client.bulkhead.available.
+ */
+@Component
+public class UserServiceResilience {
+
+	private static final Logger log = LoggerFactory.getLogger(UserServiceResilience.class);
+	private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final Semaphore bulkhead;
+	private final long bulkheadWaitMs;
+	private final CircuitBreaker circuitBreaker;
+	private final boolean hedgeEnabled;
+	private final long hedgeMinDelayMs;
+	private final ExecutorService hedgeExecutor;
+
+	private final Timer requestTimer;
+	private final Counter bulkheadRejections;
+	private final Counter breakerRejections;
+	private final Counter hedgedCalls;
+	private final Counter skippedHedges;
+
+	private volatile long hedgeDelayMs;
+	private volatile long hedgeDelayComputedAt;
+
+	public UserServiceResilience(MeterRegistry meterRegistry,
+			@Value("${user.service.bulkhead.max-concurrent:50}") int maxConcurrent,
+			@Value("${user.service.bulkhead.max-wait-ms:10}") long bulkheadWaitMs,
+			@Value("${user.service.breaker.window-size:50}") int breakerWindowSize,
+			@Value("${user.service.breaker.min-calls:20}") int breakerMinCalls,
+			@Value("${user.service.breaker.failure-rate:0.5}") double breakerFailureRate,
+			@Value("${user.service.breaker.open-seconds:10}") long breakerOpenSeconds,
+			@Value("${user.service.breaker.half-open-permits:3}") int breakerHalfOpenPermits,
+			@Value("${user.service.hedge.enabled:false}") boolean hedgeEnabled,
+			@Value("${user.service.hedge.min-delay-ms:20}") long hedgeMinDelayMs,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		this.bulkhead = new Semaphore(maxConcurrent);
+		this.bulkheadWaitMs = bulkheadWaitMs;
+		this.circuitBreaker = new CircuitBreaker(breakerWindowSize, breakerMinCalls, breakerFailureRate,
+				Duration.ofSeconds(breakerOpenSeconds), breakerHalfOpenPermits);
+		this.hedgeEnabled = hedgeEnabled;
+		this.hedgeMinDelayMs = hedgeMinDelayMs;
+		this.hedgeDelayMs = hedgeMinDelayMs;
+		this.hedgeDelayComputedAt = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS - 1;
+		// Attempts run here only while holding a permit, so at most max-concurrent are running or queued.
+		this.hedgeExecutor = !hedgeEnabled ? null : virtualThreads
+				? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("user-service-hedge-", 0).factory())
+				: boundedPool(maxConcurrent);
+
+		this.requestTimer = Timer.builder("user.client.request")
+				.description("Latency of single User Service lookups")
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.register(meterRegistry);
+		this.bulkheadRejections = rejectionCounter(meterRegistry, "bulkhead_full");
+		this.breakerRejections = rejectionCounter(meterRegistry, "circuit_open");
+		this.hedgedCalls = Counter.builder("user.client.hedged")
+				.description("User Service lookups that sent a hedged second request")
+				.register(meterRegistry);
+		this.skippedHedges = Counter.builder("user.client.hedge.skipped")
+				.description("Hedges not sent because the bulkhead had no free permit")
+				.register(meterRegistry);
+		meterRegistry.gauge("user.client.breaker.state", circuitBreaker, breaker -> breaker.state().ordinal());
+		meterRegistry.gauge("user.client.bulkhead.available", bulkhead, Semaphore::availablePermits);
+	}
+
+	/**
+	 * Run a remote call behind the bulkhead and circuit breaker. hedgeable marks single idempotent reads that
+	 * may be duplicated when hedging is enabled; batch calls pass false.
+	 */
+	public <T> T execute(Supplier<T> call, boolean hedgeable) {
+		if (!acquireBulkhead()) {
+			bulkheadRejections.increment();
+			throw new UserServiceException("User Service bulkhead full");
+		}
+		boolean permitHandedOff = false;
+		try {
+			if (!circuitBreaker.tryAcquire()) {
+				breakerRejections.increment();
+				throw new UserServiceException("User Service circuit open");
+			}
+			try {
+				T result;
+				if (hedgeable && hedgeEnabled) {
+					// The primary attempt owns the caller's permit from here and releases it when it finishes.
+					permitHandedOff = true;
+					result = hedged(call);
+				} else {
+					result = timed(call);
+				}
+				circuitBreaker.onSuccess();
+				return result;
+			} catch (UserServiceException.UserNotFoundException e) {
+				circuitBreaker.onSuccess();
+				throw e;
+			} catch (RuntimeException e) {
+				circuitBreaker.onFailure();
+				throw e;
+			}
+		} finally {
+			if (!permitHandedOff) {
+				bulkhead.release();
+			}
+		}
+	}
+
+	private boolean acquireBulkhead() {
+		try {
+			return bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private <T> T timed(Supplier<T> call) {
+		return requestTimer.record(call);
+	}
+
+	// Send the call (on the caller's permit); if it is still outstanding after the hedge delay, send a second one
+	// on a permit of its own, if one is free, and take the first success.
+	private <T> T hedged(Supplier<T> call) {
+		CompletableFuture<T> primary = submitHoldingPermit(call);
+		try {
+			return primary.get(hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			if (!bulkhead.tryAcquire()) {
+				skippedHedges.increment();
+				return join(primary);
+			}
+			hedgedCalls.increment();
+			CompletableFuture<T> backup = submitHoldingPermit(call);
+			return join(firstSuccess(List.of(primary, backup)));
+		} catch (ExecutionException e) {
+			throw unwrap(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UserServiceException("Interrupted while calling User Service", e);
+		}
+	}
+
+	// Runs one attempt that releases its (already acquired) permit when it finishes, not when the caller returns.
+	private <T> CompletableFuture<T> submitHoldingPermit(Supplier<T> call) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return timed(call);
+				} finally {
+					bulkhead.release();
+				}
+			}, hedgeExecutor);
+		} catch (RejectedExecutionException e) {
+			bulkhead.release();
+			throw new UserServiceException("User Service hedge executor rejected the call", e);
+		}
+	}
+
+	// Completes with the first successful result, or with the last failure once every attempt has failed.
+	private static <T> CompletableFuture<T> firstSuccess(List<CompletableFuture<T>> attempts) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicInteger failed = new AtomicInteger();
+		for (CompletableFuture<T> attempt : attempts) {
+			attempt.whenComplete((value, ex) -> {
+				if (ex == null) {
+					result.complete(value);
+				} else if (failed.incrementAndGet() == attempts.size()) {
+					result.completeExceptionally(ex);
+				}
+			});
+		}
+		return result;
+	}
+
+	// p95 of recent lookups, recomputed at most once a second.
+	private long hedgeDelayMillis() {
+		long now = System.nanoTime();
+		if (now - hedgeDelayComputedAt > HEDGE_DELAY_REFRESH_NANOS) {
+			long p95 = hedgeMinDelayMs;
+			for (ValueAtPercentile value : requestTimer.takeSnapshot().percentileValues()) {
+				if (value.percentile() == 0.95) {
+					p95 = (long) value.value(TimeUnit.MILLISECONDS);
+				}
+			}
+			hedgeDelayMs = Math.max(hedgeMinDelayMs, p95);
+			hedgeDelayComputedAt = now;
+		}
+		return hedgeDelayMs;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw unwrap(e.getCause());
+		}
+	}
+
+	private static RuntimeException unwrap(Throwable cause) {
+		if (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof RuntimeException runtime) {
+			return runtime;
+		}
+		return new UserServiceException("User Service call failed", cause);
+	}
+
+	// Sized to the bulkhead; the queue only absorbs the moment between a permit's release and its thread going idle.
+	private static ExecutorService boundedPool(int maxConcurrent) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(maxConcurrent), Thread.ofPlatform().name("user-service-hedge-", 0).daemon(true).factory());
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+		return Counter.builder("user.client.rejected")
+				.description("User Service calls rejected without being sent")
+				.tag("reason", reason)
+				.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (hedgeExecutor != null) {
+			hedgeExecutor.shutdownNow();
+			log.info("UserServiceResilience: hedge executor stopped");
+		}
+	}
+}
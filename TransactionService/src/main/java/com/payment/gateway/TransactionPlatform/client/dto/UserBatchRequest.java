@@ -0,0 +1,7 @@
+package com.payment.gateway.TransactionPlatform.client.dto;
+
+import java.util.List;
+
+public record UserBatchRequest(
+		List<String> userIds
+) {}
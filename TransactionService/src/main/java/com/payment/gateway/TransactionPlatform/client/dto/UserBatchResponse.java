@@ -0,0 +1,9 @@
+package com.payment.gateway.TransactionPlatform.client.dto;
+
+import java.util.List;
+
+// Body of POST /api/v1/users:batchGet on the User Service.
+public record UserBatchResponse(
+		List<UserServiceResponse> users,
+		List<String> notFound
+) {}
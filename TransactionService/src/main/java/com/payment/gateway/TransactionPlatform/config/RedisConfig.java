@@ -1,9 +1,13 @@
 package com.payment.gateway.TransactionPlatform.config;
 
+import com.payment.gateway.TransactionPlatform.services.IdempotencyAwaitService;
+import com.payment.gateway.TransactionPlatform.services.IdempotencyService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @Configuration
 public class RedisConfig {
@@ -11,4 +15,14 @@ public class RedisConfig {
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
         return new StringRedisTemplate(connectionFactory);
     }
+
+    // One pattern subscription per instance for idempotency completions; waiters are matched locally by key.
+    @Bean
+    public RedisMessageListenerContainer idempotencyListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                      IdempotencyAwaitService awaitService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(awaitService, new PatternTopic(IdempotencyService.COMPLETION_CHANNEL_PREFIX + "*"));
+        return container;
+    }
 }
\ No newline at end of file
@@ -3,10 +3,13 @@ package com.payment.gateway.TransactionPlatform.config;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+// Runs after Hibernate's ddl-auto so the outbox table exists before it is patched.
 @Component
+@DependsOn("entityManagerFactory")
 public class SchemaUpdater {
 
     private static final Logger log = LoggerFactory.getLogger(SchemaUpdater.class);
@@ -16,18 +19,140 @@ public class SchemaUpdater {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    // Dev helper: add missing outbox columns (attempts,last_error,processed_at) if they do not exist.
     @PostConstruct
+    public void updateSchema() {
+        ensureOutboxColumns();
+        ensureOutboxIndexes();
+        ensureOutboxArchive();
+        ensureIdSequences();
+        ensurePaymentIndexes();
+        ensurePaymentRollups();
+    }
+
+    // The unique index is both the cold tier of the idempotency store (IdempotencyService) and the last guard
+    // against a key being charged twice once its Redis entry has expired. Fails (logged) if duplicates exist.
+    public void ensurePaymentIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS ux_payments_idempotency_key ON payments (idempotency_key)");
+            log.info("SchemaUpdater: ensured payments index ux_payments_idempotency_key");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure ux_payments_idempotency_key (duplicate idempotency keys?): {}", e.getMessage());
+        }
+        // Keyset pagination of a user's payment history (PaymentRepository.findHistory*).
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_payments_user_created ON payments (user_id, created_at, id)");
+            log.info("SchemaUpdater: ensured payments index idx_payments_user_created");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure idx_payments_user_created: {}", e.getMessage());
+        }
+        // Day range scans of the settlement export (PaymentExportService).
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_payments_created_at ON payments (created_at, id)");
+            log.info("SchemaUpdater: ensured payments index idx_payments_created_at");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure idx_payments_created_at: {}", e.getMessage());
+        }
+    }
+
+    // Dev helper: add missing outbox columns (attempts,last_error,processed_at,locked_by,locked_until,
+    // next_attempt_at,quarantined_at) if they do not exist.
     public void ensureOutboxColumns() {
         try {
             // Add columns if they don't exist (Postgres syntax)
             jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS attempts integer DEFAULT 0");
             jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS last_error text");
             jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS processed_at timestamp");
-            log.info("SchemaUpdater: ensured outbox columns attempts,last_error,processed_at");
+            jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS locked_by varchar(255)");
+            jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS locked_until timestamp");
+            jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS next_attempt_at timestamp DEFAULT now()");
+            jdbcTemplate.execute("ALTER TABLE outbox ADD COLUMN IF NOT EXISTS quarantined_at timestamp");
+            // Rows created before next_attempt_at existed (or added by ddl-auto without a default) are due now.
+            jdbcTemplate.execute("UPDATE outbox SET next_attempt_at = created_at WHERE next_attempt_at IS NULL AND processed = false");
+            log.info("SchemaUpdater: ensured outbox columns attempts,last_error,processed_at,locked_by,locked_until,next_attempt_at,quarantined_at");
         } catch (Exception e) {
             log.warn("SchemaUpdater: could not ensure outbox columns: {}", e.getMessage());
         }
     }
-}
 
+    // Partial indexes keep the relay claim proportional to pending rows and the archiver to archivable rows.
+    public void ensureOutboxIndexes() {
+        try {
+            // idx_outbox_due supersedes the earlier idx_outbox_pending: claims now filter on the retry schedule.
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_outbox_pending");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_outbox_due ON outbox (next_attempt_at, id) WHERE processed = false AND quarantined_at IS NULL");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_outbox_pending_aggregate ON outbox (aggregate_id, id) WHERE processed = false");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_outbox_quarantined ON outbox (id) WHERE quarantined_at IS NOT NULL");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_outbox_processed_at ON outbox (processed_at) WHERE processed = true");
+            log.info("SchemaUpdater: ensured outbox indexes idx_outbox_due,idx_outbox_pending_aggregate,idx_outbox_quarantined,idx_outbox_processed_at");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure outbox indexes: {}", e.getMessage());
+        }
+    }
+
+    // Tables created while ids were IDENTITY already hold ids; move the pooled sequences past them so
+    // Hibernate never hands out an id that is taken. Increment must match allocationSize on the entities.
+    public void ensureIdSequences() {
+        ensureSequenceAhead("payments_seq", "payments");
+        ensureSequenceAhead("outbox_seq", "outbox");
+    }
+
+    private void ensureSequenceAhead(String sequence, String table) {
+        try {
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " INCREMENT BY 50");
+            jdbcTemplate.execute("SELECT setval('" + sequence + "', (SELECT COALESCE(MAX(id), 0) + 50 FROM " + table + "))"
+                    + " WHERE (SELECT last_value FROM " + sequence + ") < (SELECT COALESCE(MAX(id), 0) FROM " + table + ")");
+            log.info("SchemaUpdater: ensured sequence {} is ahead of {}.id", sequence, table);
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure sequence {}: {}", sequence, e.getMessage());
+        }
+    }
+
+    // Archive table for processed outbox rows moved out by OutboxArchiver. Columns are listed explicitly
+    // (no LIKE outbox) so later outbox columns do not silently change the archive layout.
+    public void ensureOutboxArchive() {
+        try {
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS outbox_archive (
+                        id bigint PRIMARY KEY,
+                        aggregate_id varchar(255),
+                        event_type varchar(255),
+                        payload text,
+                        created_at timestamp,
+                        processed_at timestamp,
+                        attempts integer,
+                        last_error text,
+                        archived_at timestamp NOT NULL DEFAULT now()
+                    )""");
+            log.info("SchemaUpdater: ensured outbox_archive table");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure outbox_archive table: {}", e.getMessage());
+        }
+    }
+
+    // Hourly settlement totals maintained by PaymentRollupService; one row per (hour, currency) and per
+    // (user, hour, currency), so dashboard reads touch a few rows per hour instead of the payments table.
+    public void ensurePaymentRollups() {
+        try {
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS payment_rollup_hourly (
+                        bucket_hour timestamp NOT NULL,
+                        currency varchar(255) NOT NULL,
+                        payment_count bigint NOT NULL,
+                        amount_sum numeric(38,4) NOT NULL,
+                        PRIMARY KEY (bucket_hour, currency)
+                    )""");
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS payment_user_rollup_hourly (
+                        user_id varchar(255) NOT NULL,
+                        bucket_hour timestamp NOT NULL,
+                        currency varchar(255) NOT NULL,
+                        payment_count bigint NOT NULL,
+                        amount_sum numeric(38,4) NOT NULL,
+                        PRIMARY KEY (user_id, bucket_hour, currency)
+                    )""");
+            log.info("SchemaUpdater: ensured payment rollup tables");
+        } catch (Exception e) {
+            log.warn("SchemaUpdater: could not ensure payment rollup tables: {}", e.getMessage());
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.payment.gateway.TransactionPlatform.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.gateway.TransactionPlatform.dto.PaymentHistoryPage;
 import com.payment.gateway.TransactionPlatform.dto.PaymentRequest;
 import com.payment.gateway.TransactionPlatform.dto.PaymentResponse;
+import com.payment.gateway.TransactionPlatform.dto.PaymentStatusResponse;
 import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import com.payment.gateway.TransactionPlatform.services.IdempotencyAwaitService;
 import com.payment.gateway.TransactionPlatform.services.IdempotencyService;
+import com.payment.gateway.TransactionPlatform.services.PaymentHistoryService;
 import com.payment.gateway.TransactionPlatform.services.PaymentService;
+import com.payment.gateway.TransactionPlatform.services.PaymentStatusService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1/payments")
 @Validated
@@ -23,56 +29,62 @@ public class PaymentController {
     private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
     private final IdempotencyService idempotencyService;
+    private final IdempotencyAwaitService idempotencyAwaitService;
     private final PaymentService paymentService;
-    private final ObjectMapper objectMapper;
+    private final PaymentStatusService paymentStatusService;
+    private final PaymentHistoryService paymentHistoryService;
 
     public PaymentController(IdempotencyService idempotencyService,
+                             IdempotencyAwaitService idempotencyAwaitService,
                              PaymentService paymentService,
-                             ObjectMapper objectMapper) {
+                             PaymentStatusService paymentStatusService,
+                             PaymentHistoryService paymentHistoryService) {
         this.idempotencyService = idempotencyService;
+        this.idempotencyAwaitService = idempotencyAwaitService;
         this.paymentService = paymentService;
-        this.objectMapper = objectMapper;
+        this.paymentStatusService = paymentStatusService;
+        this.paymentHistoryService = paymentHistoryService;
     }
 
 
     // Handle incoming payment request: validate input, enforce idempotency, call service, and finalize idempotency record.
+    // Returned as a future so an in-flight duplicate can wait for the original without holding a servlet thread.
     @PostMapping
-    public ResponseEntity<?> processPayment(
+    public CompletableFuture<ResponseEntity<?>> processPayment(
             @RequestHeader("X-User-Id") String userId,
             @RequestHeader("X-Idempotency-Key") String idempotencyKey,
-            @Valid @RequestBody PaymentRequest request) throws JsonProcessingException {
-
-        if (idempotencyService.isDuplicate(idempotencyKey)) {
-            String existingResponse = idempotencyService.getPreviousResponse(idempotencyKey);
-
-            if (existingResponse == null) {
-                // Key exists but no readable response yet
-                return ResponseEntity.status(HttpStatus.CONFLICT)
-                        .body("{\"message\": \"Transaction in progress. Please wait.\"}");
-            }
+            @Valid @RequestBody PaymentRequest request) {
 
-            // If stored value starts with FAILED:, return 500 with message
-            if (existingResponse.startsWith("FAILED:")) {
-                String reason = existingResponse.substring("FAILED:".length());
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body("{\"error\": \"processing_failed\", \"reason\": \"" + reason + "\"}");
+        // One round trip: reserves the key (null) or returns whatever the earlier request stored.
+        String existingResponse = idempotencyService.reserveOrGet(idempotencyKey);
+        if (existingResponse != null) {
+            if (IdempotencyService.PROCESSING.equals(existingResponse) && idempotencyAwaitService.isEnabled()) {
+                // Wait (bounded) for the original to finalize; on timeout fall back to the usual 409.
+                return idempotencyAwaitService.awaitCompletion(idempotencyKey)
+                        .handle((completed, ex) -> ex == null ? replay(completed) : inProgress());
             }
-
-            // Otherwise return the stored final response (could be JSON string)
-            return ResponseEntity.ok(existingResponse);
+            return CompletableFuture.completedFuture(replay(existingResponse));
         }
 
         try {
             PaymentResponse response = paymentService.process(request, userId, idempotencyKey);
-            String jsonResponse = objectMapper.writeValueAsString(response);
 
-            boolean updated = idempotencyService.finalizeResponseIfProcessing(idempotencyKey, jsonResponse);
+            boolean updated = idempotencyService.finalizeResponseIfProcessing(idempotencyKey, response);
             if (!updated) {
                 log.warn("Idempotency key {} was not in PROCESSING state when finalizing response", idempotencyKey);
             }
 
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
 
+        } catch (DataIntegrityViolationException e) {
+            // ux_payments_idempotency_key: the key was already charged (both idempotency tiers missed it).
+            String durableResponse = idempotencyService.recoverFromDurable(idempotencyKey);
+            if (durableResponse != null) {
+                return CompletableFuture.completedFuture(replay(durableResponse));
+            }
+            log.error("Error processing payment for idempotencyKey {}: {}", idempotencyKey, e.getMessage(), e);
+            idempotencyService.markFailedIfProcessing(idempotencyKey, e.getMessage());
+            throw e;
         } catch (UserServiceException e) {
             idempotencyService.markFailedIfProcessing(idempotencyKey, e.getMessage());
             throw e;
@@ -82,4 +94,49 @@ public class PaymentController {
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    // Read a payment's status without touching the idempotency store or the write path.
+    // Another user's payment is reported as not found rather than forbidden, so ids cannot be probed.
+    @GetMapping("/{transactionId}")
+    public ResponseEntity<PaymentStatusResponse> getPayment(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable("transactionId") String transactionId) {
+        return paymentStatusService.find(transactionId)
+                .filter(payment -> payment.userId().equals(userId))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // The caller's own payments (X-User-Id, like getPayment), newest first, one keyset page at a time
+    // (pass nextCursor back as cursor). There is no userId parameter, so other users' history cannot be listed.
+    @GetMapping
+    public ResponseEntity<PaymentHistoryPage> getPaymentHistory(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(paymentHistoryService.page(userId, cursor, limit));
+    }
+
+    // Map a value stored under the idempotency key to the response the original request produced.
+    private ResponseEntity<?> replay(String storedValue) {
+        if (storedValue == null || IdempotencyService.PROCESSING.equals(storedValue)) {
+            // Key exists but no readable response yet
+            return inProgress();
+        }
+
+        // If stored value starts with FAILED:, return 500 with message
+        if (storedValue.startsWith("FAILED:")) {
+            String reason = storedValue.substring("FAILED:".length());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("{\"error\": \"processing_failed\", \"reason\": \"" + reason + "\"}");
+        }
+
+        // Otherwise return the stored final response (could be JSON string)
+        return ResponseEntity.ok(storedValue);
+    }
+
+    private ResponseEntity<?> inProgress() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("{\"message\": \"Transaction in progress. Please wait.\"}");
+    }
+}
@@ -0,0 +1,75 @@
+package com.payment.gateway.TransactionPlatform.controllers;
+
+import com.payment.gateway.TransactionPlatform.dto.SettlementTotalsResponse;
+import com.payment.gateway.TransactionPlatform.services.PaymentExportService;
+import com.payment.gateway.TransactionPlatform.services.PaymentExportService.Format;
+import com.payment.gateway.TransactionPlatform.services.PaymentRollupService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Settlement exports and totals; not under /api/v1/payments, so they require authentication (SecurityConfig).
+@RestController
+@RequestMapping("/api/v1/settlement")
+public class SettlementController {
+
+    private final PaymentExportService paymentExportService;
+    private final PaymentRollupService paymentRollupService;
+
+    public SettlementController(PaymentExportService paymentExportService,
+                                PaymentRollupService paymentRollupService) {
+        this.paymentExportService = paymentExportService;
+        this.paymentRollupService = paymentRollupService;
+    }
+
+    // One day's payments, streamed as they are read: NDJSON (default) or CSV, optionally gzipped.
+    @GetMapping("/payments/export")
+    public void exportPayments(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(value = "format", defaultValue = "NDJSON") Format format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        String filename = "payments-" + date + (format == Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(gzip ? "application/gzip" : format == Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        paymentExportService.export(date, format, gzip, response.getOutputStream());
+    }
+
+    // Successful payments per currency for [from, to) (ISO date-times, truncated to the hour), read from the rollups.
+    @GetMapping("/totals")
+    public ResponseEntity<SettlementTotalsResponse> getTotals(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(paymentRollupService.totals(from, to));
+    }
+
+    @GetMapping("/totals/users/{userId}")
+    public ResponseEntity<SettlementTotalsResponse> getUserTotals(
+            @PathVariable("userId") String userId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(paymentRollupService.userTotals(userId, from, to));
+    }
+
+    // Recompute the rollups of settled hours in [from, to) from payments, e.g. to backfill history.
+    @PostMapping("/totals:rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildTotals(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(Map.of("hoursRebuilt", paymentRollupService.rebuild(from, to)));
+    }
+}
@@ -0,0 +1,9 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+/**
+ * In-process signal that an outbox row was written in the current transaction.
+ * Delivered to listeners after commit so the relay can publish without waiting for its next poll.
+ */
+public record OutboxWrittenEvent(
+		String aggregateId
+) {}
@@ -0,0 +1,15 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One payment in a history page; only the columns a dashboard lists.
+public record PaymentHistoryItem(
+		String transactionId,
+		BigDecimal amount,
+		String currency,
+		PaymentStatus status,
+		LocalDateTime createdAt
+) {}
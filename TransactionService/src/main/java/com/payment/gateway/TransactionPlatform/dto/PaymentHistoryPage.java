@@ -0,0 +1,9 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import java.util.List;
+
+// Newest first. nextCursor is passed back as ?cursor= for the following page; null on the last page.
+public record PaymentHistoryPage(
+		List<PaymentHistoryItem> items,
+		String nextCursor
+) {}
@@ -4,4 +4,11 @@ public record PaymentResponse(
         String transactionId,
         String status,
         String message
-) {}
+) {
+    public static final String PROCESSED_MESSAGE = "Payment processed successfully";
+
+    // Response for a payment that was persisted; also used to rebuild replays from the idempotency store.
+    public static PaymentResponse processed(String transactionId, String status) {
+        return new PaymentResponse(transactionId, status, PROCESSED_MESSAGE);
+    }
+}
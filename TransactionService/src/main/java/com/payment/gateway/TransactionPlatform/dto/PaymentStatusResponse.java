@@ -0,0 +1,16 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Body of GET /api/v1/payments/{transactionId}; also the value kept in the payment status cache.
+public record PaymentStatusResponse(
+		String transactionId,
+		String userId,
+		BigDecimal amount,
+		String currency,
+		PaymentStatus status,
+		LocalDateTime createdAt
+) {}
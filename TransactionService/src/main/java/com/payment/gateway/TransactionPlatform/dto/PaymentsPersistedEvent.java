@@ -0,0 +1,13 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+
+import java.util.List;
+
+/**
+ * In-process signal that payments were written in the current transaction.
+ * Delivered to listeners after commit, so they only ever see payments that are durable.
+ */
+public record PaymentsPersistedEvent(
+		List<PaymentEntity> payments
+) {}
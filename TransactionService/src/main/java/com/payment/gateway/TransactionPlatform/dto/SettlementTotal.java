@@ -0,0 +1,10 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import java.math.BigDecimal;
+
+// Count and sum of successful payments in one currency over a range of hours.
+public record SettlementTotal(
+		String currency,
+		long paymentCount,
+		BigDecimal amount
+) {}
@@ -0,0 +1,12 @@
+package com.payment.gateway.TransactionPlatform.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Totals per currency for [from, to), both whole hours; userId is null for platform-wide totals.
+public record SettlementTotalsResponse(
+		LocalDateTime from,
+		LocalDateTime to,
+		String userId,
+		List<SettlementTotal> totals
+) {}
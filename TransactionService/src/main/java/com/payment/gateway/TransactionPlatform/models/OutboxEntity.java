@@ -10,8 +10,10 @@ import java.time.LocalDateTime;
 @Data
 public class OutboxEntity {
 
+    // Sequence-allocated like PaymentEntity.id, so the outbox insert joins the JDBC batch at flush time.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
     private Long id;
 
     private String aggregateId; // The Transaction ID (Business Key)
@@ -33,4 +35,15 @@ public class OutboxEntity {
 
     private LocalDateTime processedAt;
 
-}
\ No newline at end of file
+    // Claim/lease: the relay instance currently publishing this row and when its claim lapses.
+    private String lockedBy;
+
+    private LocalDateTime lockedUntil;
+
+    // Retry schedule: the row is not claimed before this time; pushed out with jittered exponential backoff on failure.
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    // Set once attempts reach the configured maximum; quarantined rows are never claimed again.
+    private LocalDateTime quarantinedAt;
+
+}
@@ -2,11 +2,109 @@ package com.payment.gateway.TransactionPlatform.repositories;
 
 import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OutboxRepository extends JpaRepository<OutboxEntity, Long> {
-    // We will use this later to find messages that haven't been sent yet
-    List<OutboxEntity> findByProcessedFalse();
-}
\ No newline at end of file
+
+    // Row-lock a bounded batch of due rows whose lease is free or expired; quarantined rows are skipped.
+    // SKIP LOCKED makes concurrent relays take disjoint batches instead of waiting on each other.
+    // Ordering by attempts first puts healthy (never failed) events ahead of retries.
+    // Only the oldest pending event of an aggregate is claimable, which keeps per-transaction order
+    // across retries, backoff and lanes (a quarantined event therefore also holds back its successors).
+    @Query(value = """
+            SELECT o.id FROM outbox o
+            WHERE o.processed = false
+              AND o.quarantined_at IS NULL
+              AND o.next_attempt_at <= :now
+              AND (o.locked_until IS NULL OR o.locked_until < :now)
+              AND NOT EXISTS (
+                  SELECT 1 FROM outbox earlier
+                  WHERE earlier.aggregate_id = o.aggregate_id
+                    AND earlier.processed = false
+                    AND earlier.id < o.id)
+            ORDER BY o.attempts, o.next_attempt_at, o.id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockClaimableIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Stamp the lease on rows locked by lockClaimableIds (same transaction).
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OutboxEntity o SET o.lockedBy = :owner, o.lockedUntil = :until WHERE o.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids,
+              @Param("owner") String owner,
+              @Param("until") LocalDateTime until);
+
+    // A late ACK still means the event reached Kafka, so success is recorded even if the lease lapsed.
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            UPDATE OutboxEntity o
+            SET o.processed = true, o.processedAt = :now, o.attempts = o.attempts + 1,
+                o.lastError = null, o.lockedBy = null, o.lockedUntil = null
+            WHERE o.id IN :ids
+            """)
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Only release rows this relay still owns; an expired lease may already belong to another instance.
+    // The next attempt is scheduled per row with "equal jitter" exponential backoff computed in SQL
+    // (random() is evaluated per row), and rows reaching maxAttempts are quarantined.
+    // All SET expressions see the pre-update attempts value.
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            UPDATE outbox
+            SET attempts = attempts + 1,
+                last_error = :error,
+                locked_by = NULL,
+                locked_until = NULL,
+                next_attempt_at = CAST(:now AS timestamp) + make_interval(secs =>
+                    LEAST(:maxDelaySeconds, :baseDelaySeconds * power(2, attempts)) * (0.5 + random() * 0.5)),
+                quarantined_at = CASE WHEN attempts + 1 >= :maxAttempts THEN CAST(:now AS timestamp) ELSE NULL END
+            WHERE id IN (:ids) AND locked_by = :owner
+            """, nativeQuery = true)
+    int markFailed(@Param("ids") Collection<Long> ids,
+                   @Param("owner") String owner,
+                   @Param("error") String error,
+                   @Param("now") LocalDateTime now,
+                   @Param("baseDelaySeconds") double baseDelaySeconds,
+                   @Param("maxDelaySeconds") double maxDelaySeconds,
+                   @Param("maxAttempts") int maxAttempts);
+
+    // Served from the idx_outbox_due partial index.
+    long countByProcessedFalseAndQuarantinedAtIsNull();
+
+    // Served from the idx_outbox_quarantined partial index.
+    long countByQuarantinedAtIsNotNull();
+
+    // Move one bounded chunk of processed rows older than the cutoff into outbox_archive.
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM outbox
+                WHERE id IN (
+                    SELECT id FROM outbox
+                    WHERE processed = true AND processed_at < :cutoff
+                    ORDER BY processed_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING id, aggregate_id, event_type, payload, created_at, processed_at, attempts, last_error
+            )
+            INSERT INTO outbox_archive (id, aggregate_id, event_type, payload, created_at, processed_at, attempts, last_error)
+            SELECT id, aggregate_id, event_type, payload, created_at, processed_at, attempts, last_error FROM moved
+            ON CONFLICT (id) DO NOTHING
+            """, nativeQuery = true)
+    int archiveProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Query(value = "SELECT pg_total_relation_size('outbox')", nativeQuery = true)
+    long outboxTableBytes();
+
+    @Query(value = "SELECT pg_total_relation_size('outbox_archive')", nativeQuery = true)
+    long archiveTableBytes();
+}
@@ -1,12 +1,78 @@
 package com.payment.gateway.TransactionPlatform.repositories;
 
+import com.payment.gateway.TransactionPlatform.dto.PaymentStatusResponse;
 import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<PaymentEntity, Long> {
     // Allows us to find a payment by the transactionId (UUID) we generate
     Optional<PaymentEntity> findByTransactionId(String transactionId);
+
+    // Status read fallback: only the columns of the response, by the unique transaction_id index.
+    @Query("""
+            SELECT new com.payment.gateway.TransactionPlatform.dto.PaymentStatusResponse(
+                p.transactionId, p.userId, p.amount, p.currency, p.status, p.createdAt)
+            FROM PaymentEntity p WHERE p.transactionId = :transactionId
+            """)
+    Optional<PaymentStatusResponse> findStatusByTransactionId(@Param("transactionId") String transactionId);
+
+    // Payment history, newest first: a range scan of idx_payments_user_created read backwards, whatever the
+    // user's payment count. The row comparison in findHistoryBefore resumes right after the previous page.
+    @Query(value = """
+            SELECT p.id AS "id", p.transaction_id AS "transactionId", p.amount AS "amount",
+                   p.currency AS "currency", p.status AS "status", p.created_at AS "createdAt"
+            FROM payments p
+            WHERE p.user_id = :userId
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PaymentHistoryRow> findHistory(@Param("userId") String userId, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT p.id AS "id", p.transaction_id AS "transactionId", p.amount AS "amount",
+                   p.currency AS "currency", p.status AS "status", p.created_at AS "createdAt"
+            FROM payments p
+            WHERE p.user_id = :userId
+              AND (p.created_at, p.id) < (:createdAt, :id)
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PaymentHistoryRow> findHistoryBefore(@Param("userId") String userId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") long id,
+                                              @Param("limit") int limit);
+
+    // Cold tier of the idempotency store: only the columns needed to rebuild the response (ux_payments_idempotency_key).
+    @Query("SELECT p.transactionId AS transactionId, p.status AS status FROM PaymentEntity p WHERE p.idempotencyKey = :key")
+    Optional<IdempotentPayment> findIdempotentPayment(@Param("key") String idempotencyKey);
+
+    @Query(value = "SELECT COALESCE(pg_relation_size(to_regclass('ux_payments_idempotency_key')), 0)", nativeQuery = true)
+    long idempotencyIndexBytes();
+
+    @Query(value = "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = to_regclass('payments')", nativeQuery = true)
+    long estimatedRowCount();
+
+    interface PaymentHistoryRow {
+        Long getId();
+        String getTransactionId();
+        BigDecimal getAmount();
+        String getCurrency();
+        String getStatus();
+        LocalDateTime getCreatedAt();
+    }
+
+    interface IdempotentPayment {
+        String getTransactionId();
+        PaymentStatus getStatus();
+    }
 }
\ No newline at end of file
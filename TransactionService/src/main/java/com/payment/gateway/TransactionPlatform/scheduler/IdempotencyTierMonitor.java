@@ -0,0 +1,68 @@
+package com.payment.gateway.TransactionPlatform.scheduler;
+
+import com.payment.gateway.TransactionPlatform.services.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sizing gauges for the two idempotency tiers (idempotency.tier.keys / idempotency.tier.bytes, tag tier).
+ *
+ * hot  = Redis keys under the idempotency prefix; bytes extrapolated from MEMORY USAGE on a sample.
+ * cold = payments rows (planner estimate) and the size of ux_payments_idempotency_key.
+ * Values are refreshed on a schedule and cached, never computed per scrape: the SCAN is capped at
+ * max-scan-keys so a large hot tier cannot turn a refresh into a long Redis walk.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.export.output", havingValue = "__none__", matchIfMissing = true)
+public class IdempotencyTierMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyTierMonitor.class);
+
+    private final IdempotencyService idempotencyService;
+    private final int maxScanKeys;
+    private final int sampleSize;
+
+    private final AtomicLong hotKeys = new AtomicLong();
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong coldKeys = new AtomicLong();
+    private final AtomicLong coldBytes = new AtomicLong();
+
+    public IdempotencyTierMonitor(IdempotencyService idempotencyService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${idempotency.tier-stats.max-scan-keys:100000}") int maxScanKeys,
+                                  @Value("${idempotency.tier-stats.sample-size:100}") int sampleSize) {
+        this.idempotencyService = idempotencyService;
+        this.maxScanKeys = maxScanKeys;
+        this.sampleSize = sampleSize;
+        meterRegistry.gauge("idempotency.tier.keys", Tags.of("tier", "hot"), hotKeys);
+        meterRegistry.gauge("idempotency.tier.bytes", Tags.of("tier", "hot"), hotBytes);
+        meterRegistry.gauge("idempotency.tier.keys", Tags.of("tier", "cold"), coldKeys);
+        meterRegistry.gauge("idempotency.tier.bytes", Tags.of("tier", "cold"), coldBytes);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.tier-stats.interval-ms:60000}")
+    public void refreshStats() {
+        try {
+            IdempotencyService.TierStats hot = idempotencyService.hotTierStats(maxScanKeys, sampleSize);
+            hotKeys.set(hot.keys());
+            hotBytes.set(hot.bytes());
+        } catch (Exception e) {
+            log.warn("IdempotencyTierMonitor: Could not refresh hot tier stats: {}", e.getMessage());
+        }
+        try {
+            IdempotencyService.TierStats cold = idempotencyService.coldTierStats();
+            coldKeys.set(cold.keys());
+            coldBytes.set(cold.bytes());
+        } catch (Exception e) {
+            log.warn("IdempotencyTierMonitor: Could not refresh cold tier stats: {}", e.getMessage());
+        }
+    }
+}
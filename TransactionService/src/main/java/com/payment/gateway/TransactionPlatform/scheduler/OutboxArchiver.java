@@ -0,0 +1,94 @@
+package com.payment.gateway.TransactionPlatform.scheduler;
+
+import com.payment.gateway.TransactionPlatform.services.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox retention: moves processed rows older than the retention window into outbox_archive,
+ * so the live outbox table (and every relay claim) only ever deals with recent rows.
+ *
+ * Work is done in bounded chunks, each in its own short transaction, and capped per run so a large
+ * backlog after enabling retention is worked off gradually instead of in one long lock-holding delete.
+ * The same run refreshes the table-size gauges; they are cached here rather than queried per scrape.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.export.output", havingValue = "__none__", matchIfMissing = true)
+public class OutboxArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxArchiver.class);
+
+    private final OutboxService outboxService;
+    private final Duration retention;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    private final Counter archivedRows;
+    private final AtomicLong pendingRows = new AtomicLong();
+    private final AtomicLong quarantinedRows = new AtomicLong();
+    private final AtomicLong outboxBytes = new AtomicLong();
+    private final AtomicLong archiveBytes = new AtomicLong();
+
+    public OutboxArchiver(OutboxService outboxService,
+                          MeterRegistry meterRegistry,
+                          @Value("${outbox.archive.retention-minutes:60}") long retentionMinutes,
+                          @Value("${outbox.archive.chunk-size:1000}") int chunkSize,
+                          @Value("${outbox.archive.max-chunks-per-run:20}") int maxChunksPerRun) {
+        this.outboxService = outboxService;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.archivedRows = Counter.builder("outbox.archived.rows")
+                .description("Processed outbox rows moved to outbox_archive")
+                .register(meterRegistry);
+        meterRegistry.gauge("outbox.pending.rows", pendingRows);
+        meterRegistry.gauge("outbox.quarantined.rows", quarantinedRows);
+        meterRegistry.gauge("outbox.table.bytes", outboxBytes);
+        meterRegistry.gauge("outbox.archive.table.bytes", archiveBytes);
+    }
+
+    // Archive processed rows past retention in bounded chunks, then refresh the size gauges.
+    @Scheduled(fixedDelayString = "${outbox.archive.interval-ms:60000}")
+    public void archiveProcessed() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int total = 0;
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int moved = outboxService.archiveChunk(cutoff, chunkSize);
+                total += moved;
+                if (moved < chunkSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("OutboxArchiver: Failed to archive processed outbox rows: {}", e.getMessage());
+        }
+        archivedRows.increment(total);
+        if (total > 0) {
+            log.info("OutboxArchiver: Moved {} processed outbox rows older than {} to outbox_archive.", total, cutoff);
+        }
+        refreshStats();
+    }
+
+    private void refreshStats() {
+        try {
+            OutboxService.OutboxStats stats = outboxService.stats();
+            pendingRows.set(stats.pendingRows());
+            quarantinedRows.set(stats.quarantinedRows());
+            outboxBytes.set(stats.outboxBytes());
+            archiveBytes.set(stats.archiveBytes());
+        } catch (Exception e) {
+            log.warn("OutboxArchiver: Could not refresh outbox table stats: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.payment.gateway.TransactionPlatform.scheduler;
+
+import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes outbox rows to Kafka on N worker lanes, chosen by hashing the row's aggregateId.
+ *
+ * All events of one transaction always land on the same lane, and each lane hands them to the
+ * producer strictly in claim order, so per-transaction ordering holds (the idempotent producer keeps
+ * that order within the partition) while unrelated transactions are published concurrently.
+ * The claim query additionally never hands out an event while an older event of the same aggregate
+ * is still pending, so a failed event cannot be overtaken by its successor on a later batch.
+ *
+ * Size outbox.relay.lanes to the partition count of payment-events: more lanes than partitions
+ * only adds contention on the same partition queues.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.export.output", havingValue = "__none__", matchIfMissing = true)
+public class OutboxLanePublisher {
+
+    private static final String TOPIC = "payment-events";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final Lane[] lanes;
+
+    public OutboxLanePublisher(KafkaTemplate<String, String> kafkaTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${outbox.relay.lanes:4}") int laneCount) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, meterRegistry);
+        }
+    }
+
+    // Hand each event to its lane; returns one ack future per event, in input order.
+    public List<CompletableFuture<SendResult<String, String>>> publish(List<OutboxEntity> events) {
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(events.size());
+        for (OutboxEntity event : events) {
+            futures.add(lanes[laneOf(event.getAggregateId())].submit(event));
+        }
+        return futures;
+    }
+
+    int laneOf(String aggregateId) {
+        return aggregateId == null ? 0 : Math.floorMod(aggregateId.hashCode(), lanes.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(OutboxEntity event) {
+        try {
+            return kafkaTemplate.send(TOPIC, event.getAggregateId(), event.getPayload());
+        } catch (Exception e) {
+            // send() can throw synchronously (e.g. metadata wait exceeded max.block.ms)
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private final class Lane {
+
+        private final ExecutorService executor;
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer latency;
+
+        Lane(int index, MeterRegistry meterRegistry) {
+            String lane = String.valueOf(index);
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "outbox-lane-" + lane);
+                thread.setDaemon(true);
+                return thread;
+            });
+            Gauge.builder("outbox.lane.queue.depth", depth, AtomicInteger::get)
+                    .description("Events handed to the lane and not yet acknowledged by Kafka")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("outbox.lane.publish.latency")
+                    .description("Time from lane submission to Kafka acknowledgement")
+                    .tag("lane", lane)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+
+        CompletableFuture<SendResult<String, String>> submit(OutboxEntity event) {
+            CompletableFuture<SendResult<String, String>> result = new CompletableFuture<>();
+            long start = System.nanoTime();
+            depth.incrementAndGet();
+            try {
+                executor.execute(() -> send(event).whenComplete((sendResult, ex) -> {
+                    depth.decrementAndGet();
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(sendResult);
+                    }
+                }));
+            } catch (Exception e) {
+                // Lane already shut down
+                depth.decrementAndGet();
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+    }
+}
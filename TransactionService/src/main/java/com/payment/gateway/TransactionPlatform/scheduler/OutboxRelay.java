@@ -1,87 +1,192 @@
 package com.payment.gateway.TransactionPlatform.scheduler;
 
+import com.payment.gateway.TransactionPlatform.dto.OutboxWrittenEvent;
 import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
-import com.payment.gateway.TransactionPlatform.repositories.OutboxRepository;
+import com.payment.gateway.TransactionPlatform.services.OutboxService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
+@ConditionalOnProperty(name = "payment.export.output", havingValue = "__none__", matchIfMissing = true)
 public class OutboxRelay {
 
     private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
 
-    private final OutboxRepository outboxRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final OutboxLanePublisher lanePublisher;
+    private final String instanceId;
+    private final int batchSize;
+    private final Duration lease;
+    private final long sendTimeoutMs;
+    private final boolean wakeupOnCommit;
+    private final Timer publishLag;
 
-    public OutboxRelay(OutboxRepository outboxRepository, KafkaTemplate<String, String> kafkaTemplate) {
-        this.outboxRepository = outboxRepository;
-        this.kafkaTemplate = kafkaTemplate;
+    // Single drain thread: push wakeups and the safety-net poll never publish concurrently in one instance.
+    private final ExecutorService drainExecutor;
+    private final AtomicBoolean drainPending = new AtomicBoolean(false);
+
+    public OutboxRelay(OutboxService outboxService,
+                       OutboxLanePublisher lanePublisher,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.lease-seconds:30}") long leaseSeconds,
+                       @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${outbox.relay.wakeup-on-commit:true}") boolean wakeupOnCommit,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.outboxService = outboxService;
+        this.lanePublisher = lanePublisher;
+        this.instanceId = resolveInstanceId();
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.wakeupOnCommit = wakeupOnCommit;
+        // The drain mostly waits on the DB and on Kafka acks, so in virtual-thread mode it needs no platform thread.
+        this.drainExecutor = Executors.newSingleThreadExecutor(virtualThreads
+                ? Thread.ofVirtual().name("outbox-relay").factory()
+                : Thread.ofPlatform().name("outbox-relay").daemon(true).factory());
+        this.publishLag = Timer.builder("outbox.publish.lag")
+                .description("Time from outbox row creation to Kafka acknowledgement")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    // Safety-net poll: picks up rows committed by other instances or missed while the broker was down.
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:30000}")
+    public void publishEvents() {
+        requestDrain();
+    }
+
+    // Push wakeup: runs after the payment transaction commits, so the row is already visible to the claim query.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOutboxWritten(OutboxWrittenEvent event) {
+        if (wakeupOnCommit) {
+            requestDrain();
+        }
     }
 
     /**
-     * Poll pending outbox rows and publish them.
+     * Schedule a drain on the relay thread. Requests arriving while one is already queued are coalesced;
+     * a request arriving while a drain is running queues exactly one follow-up drain, so no commit is missed.
+     */
+    public void requestDrain() {
+        if (drainPending.compareAndSet(false, true)) {
+            drainExecutor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Drain pending outbox rows in leased batches.
      *
-     * Note: we intentionally do not keep a DB transaction open while sending to Kafka.
-     * This implementation uses the async send callback and marks rows processed only after a successful send.
-     * For multi-instance safety and higher throughput consider using SELECT ... FOR UPDATE SKIP LOCKED
-     * or an 'in_flight' claim/update pattern.
+     * Each batch is claimed in its own short transaction (FOR UPDATE SKIP LOCKED + lease columns),
+     * so several TransactionService replicas can run the relay side by side without publishing the
+     * same row twice. All sends of a batch are handed to the lane publisher (ordered per aggregateId,
+     * concurrent across aggregates) before waiting on any acknowledgement, and the
+     * outcome is written back with one UPDATE for the successes and one per distinct error.
+     * The lease must stay comfortably above send-timeout-ms, otherwise another relay may re-claim
+     * rows that are still in flight here.
+     * Stops at the first batch with failures so a broker outage is not hammered with the whole backlog.
      */
-    // Poll unprocessed outbox rows, publish to Kafka and mark processed on ACK.
-    @Scheduled(fixedDelay = 5000)
-    public void publishEvents() {
-        List<OutboxEntity> pendingEvents = outboxRepository.findByProcessedFalse();
+    private void drain() {
+        drainPending.set(false);
+        try {
+            BatchResult result;
+            do {
+                result = publishBatch();
+            } while (result.claimed() == batchSize && result.failed() == 0);
+        } catch (Exception e) {
+            log.error("OutboxRelay: Drain failed: {}", e.getMessage(), e);
+        }
+    }
 
-        if (pendingEvents.isEmpty()) {
-            return;
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+
+    private BatchResult publishBatch() {
+        List<OutboxEntity> batch = outboxService.claimBatch(instanceId, batchSize, lease);
+        if (batch.isEmpty()) {
+            return new BatchResult(0, 0);
         }
 
-        log.info("OutboxRelay: Found {} pending events to publish.", pendingEvents.size());
+        // Dispatch the whole batch first so the producer can pipeline it in as few requests as possible.
+        List<CompletableFuture<SendResult<String, String>>> futures = lanePublisher.publish(batch);
 
-        for (OutboxEntity event : pendingEvents) {
-            try {
-                // increment attempt immediately (best-effort)
-                event.setAttempts(event.getAttempts() + 1);
-                outboxRepository.save(event);
-
-                // send and wait for acknowledgement (synchronous here for compatibility with a range of
-                // Spring/Kafka client versions). This is simpler and compatible where addCallback() may not be
-                // available in the classpath used by the project. Use a reasonable timeout to avoid long blocking.
-                try {
-                    var future = kafkaTemplate.send("payment-events", event.getAggregateId(), event.getPayload());
-                    // wait up to 10 seconds for send to complete
-                    future.get(10, java.util.concurrent.TimeUnit.SECONDS);
-
-                    event.setProcessed(true);
-                    event.setProcessedAt(LocalDateTime.now());
-                    event.setLastError(null);
-                    outboxRepository.save(event);
-                    log.info("OutboxRelay: Successfully pushed transaction {} to Kafka.", event.getAggregateId());
-                } catch (java.util.concurrent.TimeoutException tex) {
-                    event.setLastError("timeout: " + tex.getMessage());
-                    outboxRepository.save(event);
-                    log.error("OutboxRelay: Timeout while pushing transaction {} to Kafka: {}", event.getAggregateId(), tex.getMessage());
-                } catch (Exception ex) {
-                    event.setLastError(ex.getMessage());
-                    outboxRepository.save(event);
-                    log.error("OutboxRelay: Failed to push transaction {}. Error: {}", event.getAggregateId(), ex.getMessage());
-                }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<Long> published = new ArrayList<>(batch.size());
+        Map<String, List<Long>> failedByError = new LinkedHashMap<>();
 
-            } catch (Exception e) {
-                // Guard - any unexpected exception
-                log.error("OutboxRelay: Unexpected error when processing outbox id {}: {}", event.getId(), e.getMessage());
-                try {
-                    event.setLastError(e.getMessage());
-                    outboxRepository.save(event);
-                } catch (Exception ex) {
-                    log.error("OutboxRelay: Failed to persist lastError for outbox id {}: {}", event.getId(), ex.getMessage());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEntity event = batch.get(i);
+            try {
+                futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(event.getId());
+                if (event.getCreatedAt() != null) {
+                    publishLag.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
                 }
+            } catch (TimeoutException tex) {
+                recordFailure(failedByError, "timeout: no ack within " + sendTimeoutMs + "ms", event);
+                log.error("OutboxRelay: Timeout while pushing transaction {} to Kafka", event.getAggregateId());
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                recordFailure(failedByError, String.valueOf(cause.getMessage()), event);
+                log.error("OutboxRelay: Failed to push transaction {}. Error: {}", event.getAggregateId(), cause.getMessage());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                recordFailure(failedByError, "interrupted", event);
             }
         }
+
+        try {
+            outboxService.markPublished(published);
+            failedByError.forEach((error, ids) -> outboxService.markFailed(ids, instanceId, error));
+        } catch (Exception e) {
+            // Rows stay leased until lease expiry and are then re-claimed; consumers dedupe on transactionId.
+            log.error("OutboxRelay: Failed to record publish results for {} outbox rows: {}", batch.size(), e.getMessage());
+        }
+
+        int failed = batch.size() - published.size();
+        log.info("OutboxRelay: Published {}/{} claimed events ({} failed).", published.size(), batch.size(), failed);
+        return new BatchResult(batch.size(), failed);
+    }
+
+    private void recordFailure(Map<String, List<Long>> failedByError, String error, OutboxEntity event) {
+        failedByError.computeIfAbsent(error, k -> new ArrayList<>()).add(event.getId());
+        if (outboxService.isLastAttempt(event)) {
+            log.warn("OutboxRelay: Quarantining outbox id {} (transaction {}) after {} failed attempts.",
+                    event.getId(), event.getAggregateId(), event.getAttempts() + 1);
+        }
     }
-}
\ No newline at end of file
+
+    private static String resolveInstanceId() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "relay");
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private record BatchResult(int claimed, int failed) {}
+}
@@ -0,0 +1,79 @@
+package com.payment.gateway.TransactionPlatform.scheduler;
+
+import com.payment.gateway.TransactionPlatform.services.PaymentExportService;
+import com.payment.gateway.TransactionPlatform.services.PaymentExportService.Format;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+/**
+ * One-shot settlement export from the command line: writes one day's payments to a file and exits.
+ *
+ * Only active when payment.export.output is set, e.g.
+ *   java -jar transactionservice.jar --spring.main.web-application-type=none \
+ *       --payment.export.output=/data/payments-2024-05-01.csv.gz --payment.export.date=2024-05-01 \
+ *       --payment.export.format=CSV --payment.export.gzip=true
+ * date defaults to yesterday, format to NDJSON. The exit code is 0 on success and 1 on failure.
+ *
+ * The background jobs (OutboxRelay and its lane publisher, OutboxArchiver, PaymentRollupFlusher,
+ * IdempotencyTierMonitor) are conditional on payment.export.output being unset, so an export run does not
+ * publish, archive or roll up anything, and exiting cannot cut one of them off mid-flight.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.export.output")
+public class PaymentExportJob implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportJob.class);
+
+    private final PaymentExportService paymentExportService;
+    private final ConfigurableApplicationContext context;
+    private final Path output;
+    private final String date;
+    private final Format format;
+    private final boolean gzip;
+
+    public PaymentExportJob(PaymentExportService paymentExportService,
+                            ConfigurableApplicationContext context,
+                            @Value("${payment.export.output}") String output,
+                            @Value("${payment.export.date:}") String date,
+                            @Value("${payment.export.format:NDJSON}") Format format,
+                            @Value("${payment.export.gzip:false}") boolean gzip) {
+        this.paymentExportService = paymentExportService;
+        this.context = context;
+        this.output = Path.of(output);
+        this.date = date;
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public void run(String... args) {
+        int exitCode = 0;
+        try {
+            LocalDate day = date.isBlank() ? LocalDate.now().minusDays(1) : LocalDate.parse(date);
+            Path partial = output.resolveSibling(output.getFileName() + ".partial");
+            // Written under a temporary name and moved into place, so a failed run never leaves a truncated file.
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                long rows = paymentExportService.export(day, format, gzip, out);
+                log.info("PaymentExportJob: wrote {} payments for {} to {}", rows, day, output);
+            }
+            Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            log.error("PaymentExportJob: export to {} failed: {}", output, e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
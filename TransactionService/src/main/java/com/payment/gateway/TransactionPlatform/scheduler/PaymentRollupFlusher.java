@@ -0,0 +1,56 @@
+package com.payment.gateway.TransactionPlatform.scheduler;
+
+import com.payment.gateway.TransactionPlatform.services.PaymentRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Drives PaymentRollupService: flushes pending deltas every flush-interval-ms and rebuilds each hour from
+ * payments once it has settled, which repairs totals whose deltas died with an instance. Every instance
+ * rebuilds the same hour; the rebuild is idempotent, so this needs no coordination.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.export.output", havingValue = "__none__", matchIfMissing = true)
+public class PaymentRollupFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentRollupFlusher.class);
+
+    private final PaymentRollupService rollupService;
+    private LocalDateTime reconciledUntil;
+
+    public PaymentRollupFlusher(PaymentRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        try {
+            int rows = rollupService.flush();
+            if (rows > 0) {
+                log.debug("PaymentRollupFlusher: flushed {} rollup rows", rows);
+            }
+        } catch (Exception e) {
+            log.warn("PaymentRollupFlusher: flush failed, deltas kept for the next run: {}", e.getMessage());
+        }
+    }
+
+    // Rebuild the most recently settled hour once; after a restart only that hour is redone.
+    @Scheduled(fixedDelayString = "${payment.rollup.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        LocalDateTime settled = rollupService.settledUntil();
+        if (settled.equals(reconciledUntil)) {
+            return;
+        }
+        try {
+            rollupService.rebuild(settled.minusHours(1), settled);
+            reconciledUntil = settled;
+        } catch (Exception e) {
+            log.warn("PaymentRollupFlusher: could not reconcile the hour before {}: {}", settled, e.getMessage());
+        }
+    }
+}
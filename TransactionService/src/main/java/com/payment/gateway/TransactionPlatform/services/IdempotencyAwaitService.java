@@ -0,0 +1,94 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lets a duplicate request wait for the in-flight original instead of answering 409 straight away.
+ *
+ * Completion arrives over Redis pub/sub: the finalize / mark-failed Lua scripts publish the stored
+ * value on COMPLETION_CHANNEL_PREFIX + key, and this listener (one pattern subscription per
+ * instance, see RedisConfig) completes every local waiter for that key. Waiters are plain
+ * CompletableFutures with orTimeout, so no thread is parked while a request waits; the servlet
+ * thread is released by the controller returning the future.
+ */
+@Service
+public class IdempotencyAwaitService implements MessageListener {
+
+    private final IdempotencyService idempotencyService;
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final Counter completedWaits;
+    private final Counter timedOutWaits;
+    private final Map<String, Set<CompletableFuture<String>>> waiters = new ConcurrentHashMap<>();
+
+    public IdempotencyAwaitService(IdempotencyService idempotencyService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${idempotency.await.enabled:false}") boolean enabled,
+                                   @Value("${idempotency.await.timeout-ms:5000}") long timeoutMs) {
+        this.idempotencyService = idempotencyService;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.completedWaits = Counter.builder("idempotency.await").tag("outcome", "completed").register(meterRegistry);
+        this.timedOutWaits = Counter.builder("idempotency.await").tag("outcome", "timeout").register(meterRegistry);
+        meterRegistry.gauge("idempotency.await.waiters", waiters, map -> map.values().stream().mapToInt(Set::size).sum());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Completes with the value stored once the key leaves PROCESSING (final JSON or "FAILED:reason"),
+     * with null if the key disappeared, or exceptionally with TimeoutException after timeout-ms.
+     */
+    public CompletableFuture<String> awaitCompletion(String key) {
+        CompletableFuture<String> waiter = new CompletableFuture<>();
+        waiters.compute(key, (k, set) -> {
+            Set<CompletableFuture<String>> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(waiter);
+            return target;
+        });
+        waiter.whenComplete((value, ex) -> {
+            waiters.computeIfPresent(key, (k, set) -> {
+                set.remove(waiter);
+                return set.isEmpty() ? null : set;
+            });
+            if (ex instanceof TimeoutException) {
+                timedOutWaits.increment();
+            } else {
+                completedWaits.increment();
+            }
+        });
+
+        // Re-read after registering: the original may have finished before we were listening.
+        String current = idempotencyService.getPreviousResponse(key);
+        if (!IdempotencyService.PROCESSING.equals(current)) {
+            waiter.complete(current);
+        }
+        return waiter.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String key = channel.substring(IdempotencyService.COMPLETION_CHANNEL_PREFIX.length());
+        Set<CompletableFuture<String>> keyWaiters = waiters.remove(key);
+        if (keyWaiters != null) {
+            String value = idempotencyService.expand(new String(message.getBody(), StandardCharsets.UTF_8));
+            keyWaiters.forEach(waiter -> waiter.complete(value));
+        }
+    }
+}
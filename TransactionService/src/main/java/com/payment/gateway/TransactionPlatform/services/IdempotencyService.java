@@ -1,11 +1,31 @@
 package com.payment.gateway.TransactionPlatform.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.payment.gateway.TransactionPlatform.dto.PaymentResponse;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Service responsible for idempotency key lifecycle in Redis.
@@ -27,25 +47,102 @@ import java.util.Collections;
  *     ARGV[1] = expected current value (e.g. "PROCESSING")
  *     ARGV[2] = new value to set (e.g. final JSON or "FAILED:reason")
  *     ARGV[3] = TTL in seconds
- * - This returns 1 when the compare-and-set succeeded, 0 otherwise.
+ * - This returns 1 when the compare-and-set succeeded, 0 otherwise. On success the new value is
+ *   also PUBLISHed on COMPLETION_CHANNEL_PREFIX + idempotencyId (ARGV[4]) so duplicates waiting in
+ *   IdempotencyAwaitService are released without polling.
  *
  * Why keep Lua: it's compact, fast, and avoids complex retry logic. The script is intentionally
  * tiny and documented here so developers unfamiliar with Redis can understand the reason it
  * exists without needing deep Lua knowledge.
+ *
+ * Scripts are sent with EVALSHA (RedisTemplate computes the SHA1 once per script object and only
+ * falls back to EVAL on NOSCRIPT); they are also SCRIPT LOADed at startup so the first request
+ * after a Redis restart does not pay for the fallback. Every Redis call is timed per operation
+ * (metric idempotency.redis, tag op).
+ *
+ * Tiers: Redis is only the hot tier. A reservation lives processing-ttl-seconds and a finished
+ * result hot-ttl-seconds, stored compactly ("C|transactionId|status" for a processed payment, the
+ * JSON is rebuilt on read). Merchants retry for up to a day, so a key that is no longer in Redis
+ * falls through to the cold tier: the payment row itself, looked up via the unique index on
+ * payments.idempotency_key. A cold hit re-warms Redis. The unique index also rejects the insert if
+ * a retry slips past both tiers (see recoverFromDurable). Lookups are counted per tier
+ * (idempotency.lookup, tags tier/result).
+ *
+ * In front of Redis sits a small per-instance near-cache (Caffeine, size and TTL bounded) holding
+ * only finalized values - a response or FAILED:..., never PROCESSING - so it cannot replay a stale
+ * in-progress state and a retry storm against one instance is answered without a Redis round trip.
+ * Admin overwrites/deletes only invalidate the local instance; keep near-cache.ttl-seconds short.
+ * Hit ratio and evictions are exported as cache.* metrics with cache=idempotency.near.
  */
 @Service
 public class IdempotencyService {
 
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    // Marker value stored while the first request for a key is still being processed.
+    public static final String PROCESSING = "PROCESSING";
+    // Pub/sub channel prefix; the final value is published here when a key leaves PROCESSING.
+    public static final String COMPLETION_CHANNEL_PREFIX = "idempotency:done:";
+
+    // Compact hot-tier encoding of a processed payment: C|<transactionId>|<status>.
+    private static final String COMPACT_PREFIX = "C|";
+
     private final StringRedisTemplate redisTemplate;
+    private final PaymentRepository paymentRepository;
+    private final ObjectMapper objectMapper;
+    private final String processingTtlSeconds;
+    private final String hotTtlSeconds;
+    private final boolean coldTierEnabled;
+    private final Timer reserveTimer;
+    private final Timer finalizeTimer;
+    private final Timer markFailedTimer;
+    private final Timer getTimer;
+    private final Timer coldLookupTimer;
+    private final Counter hotHits;
+    private final Counter hotMisses;
+    private final Counter coldHits;
+    private final Counter coldMisses;
+    private final Cache<String, String> nearCache;
 
-    public IdempotencyService(StringRedisTemplate redisTemplate) {
+    public IdempotencyService(StringRedisTemplate redisTemplate,
+                              PaymentRepository paymentRepository,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.processing-ttl-seconds:300}") long processingTtlSeconds,
+                              @Value("${idempotency.hot-ttl-seconds:900}") long hotTtlSeconds,
+                              @Value("${idempotency.cold-tier.enabled:true}") boolean coldTierEnabled,
+                              @Value("${idempotency.near-cache.max-size:10000}") long nearCacheMaxSize,
+                              @Value("${idempotency.near-cache.ttl-seconds:60}") long nearCacheTtlSeconds) {
         this.redisTemplate = redisTemplate;
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+        this.processingTtlSeconds = String.valueOf(processingTtlSeconds);
+        this.hotTtlSeconds = String.valueOf(hotTtlSeconds);
+        this.coldTierEnabled = coldTierEnabled;
+        this.reserveTimer = redisTimer(meterRegistry, "reserve_or_get");
+        this.finalizeTimer = redisTimer(meterRegistry, "finalize");
+        this.markFailedTimer = redisTimer(meterRegistry, "mark_failed");
+        this.getTimer = redisTimer(meterRegistry, "get");
+        this.coldLookupTimer = Timer.builder("idempotency.cold.lookup")
+                .description("Latency of idempotency lookups against payments.idempotency_key")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.hotHits = lookupCounter(meterRegistry, "hot", "hit");
+        this.hotMisses = lookupCounter(meterRegistry, "hot", "miss");
+        this.coldHits = lookupCounter(meterRegistry, "cold", "hit");
+        this.coldMisses = lookupCounter(meterRegistry, "cold", "miss");
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(nearCacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "idempotency.near");
     }
 
     // Key namespace. Consider moving to application.yml for configurability if teams prefer.
     private static final String KEY_PREFIX = "idempotency:payment:";
-    // Default TTL applied to keys when set. Consider making configurable via @Value.
-    private static final long DEFAULT_TTL_SECONDS = Duration.ofMinutes(30).getSeconds();
+    // TTL for keys written outside the normal lifecycle (overwriteRecord).
+    private static final Duration ADMIN_TTL = Duration.ofMinutes(30);
     
     // Lua script used to atomically replace a value only when it matches an expected value,
     // and to set an expiry at the same time. Kept as a String constant for readability and
@@ -54,22 +151,84 @@ public class IdempotencyService {
     //  ARGV[1] = expected current value
     //  ARGV[2] = new value to set
     //  ARGV[3] = ttl seconds
-    private static final String LUA_FINALIZE = "local v = redis.call('get', KEYS[1]); if v == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]); return 1; else return 0; end";
+    //  ARGV[4] = completion channel
+    private static final String LUA_FINALIZE = "local v = redis.call('get', KEYS[1]); if v == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]); redis.call('publish', ARGV[4], ARGV[2]); return 1; else return 0; end";
     // MARK_FAILED uses the same logic as FINALIZE (compare-and-set-with-expiry). We keep a
     // separate constant for semantic clarity in code, but the script text is identical.
-    private static final String LUA_MARK_FAILED = "local v = redis.call('get', KEYS[1]); if v == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]); return 1; else return 0; end";
+    private static final String LUA_MARK_FAILED = "local v = redis.call('get', KEYS[1]); if v == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]); redis.call('publish', ARGV[4], ARGV[2]); return 1; else return 0; end";
+    // Reserve-or-fetch in one round trip: return the current value if the key exists, otherwise
+    // SET it to ARGV[1] with TTL ARGV[2] and return nil (Lua false). Closes the gap the former
+    // SETNX + GET pair had, where the key could expire between the two calls.
+    //  ARGV[1] = reservation marker ("PROCESSING")
+    //  ARGV[2] = ttl seconds
+    private static final String LUA_RESERVE_OR_GET = "local v = redis.call('get', KEYS[1]); if v then return v; end; redis.call('set', KEYS[1], ARGV[1], 'EX', ARGV[2]); return false";
     private static final DefaultRedisScript<Long> FINALIZE_SCRIPT = createLongScript(LUA_FINALIZE);
     private static final DefaultRedisScript<Long> MARK_FAILED_SCRIPT = createLongScript(LUA_MARK_FAILED);
+    private static final DefaultRedisScript<String> RESERVE_OR_GET_SCRIPT = createStringScript(LUA_RESERVE_OR_GET);
+
+    // Best-effort SCRIPT LOAD so EVALSHA hits from the first request; Redis being down here is not fatal.
+    @PostConstruct
+    public void loadScripts() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                for (DefaultRedisScript<?> script : List.of(FINALIZE_SCRIPT, MARK_FAILED_SCRIPT, RESERVE_OR_GET_SCRIPT)) {
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("IdempotencyService: could not preload Lua scripts: {}", e.getMessage());
+        }
+    }
 
     /**
-     * Returns true if the key already exists (i.e. it's a duplicate request). The caller usually
-     * sets the key to "PROCESSING" using setIfAbsent before processing.
+     * Atomically reserve the key (value PROCESSING) or return what is already stored, in a single
+     * round trip. Returns null when this call made the reservation and the caller should process;
+     * otherwise PROCESSING, "FAILED:reason" or the final response JSON.
+     *
+     * A hot-tier miss (we just reserved) is checked against the cold tier before returning null, so a
+     * retry that arrives after the Redis entry expired still gets the original payment back.
+     */
+    public String reserveOrGet(String key) {
+        String finalized = nearCache.getIfPresent(key);
+        if (finalized != null) {
+            return finalized;
+        }
+        String stored = reserveTimer.record(() -> redisTemplate.execute(RESERVE_OR_GET_SCRIPT,
+                Collections.singletonList(KEY_PREFIX + key), PROCESSING, processingTtlSeconds));
+        if (stored != null) {
+            hotHits.increment();
+            return rememberIfFinal(key, expand(stored));
+        }
+        hotMisses.increment();
+        return coldTierEnabled ? recoverFromDurable(key) : null;
+    }
+
+    /**
+     * Cold-tier lookup: if a payment with this idempotency key was already persisted, re-warm the hot
+     * tier from our PROCESSING reservation and return the response JSON; otherwise null. Also used when
+     * the payment insert hits ux_payments_idempotency_key.
+     */
+    public String recoverFromDurable(String key) {
+        Optional<PaymentRepository.IdempotentPayment> payment =
+                coldLookupTimer.record(() -> paymentRepository.findIdempotentPayment(key));
+        if (payment.isEmpty()) {
+            coldMisses.increment();
+            return null;
+        }
+        coldHits.increment();
+        PaymentResponse response = PaymentResponse.processed(payment.get().getTransactionId(), payment.get().getStatus().name());
+        finalizeResponseIfProcessing(key, response);
+        return rememberIfFinal(key, toJson(response));
+    }
+
+    /**
+     * Returns true if the key already exists (i.e. it's a duplicate request); otherwise reserves it
+     * as "PROCESSING". Prefer reserveOrGet, which also hands back the stored value.
      */
     // Reserve idempotency key in Redis with a short TTL (prevents duplicate processing).
     public boolean isDuplicate(String key) {
-        return Boolean.FALSE.equals(
-                redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, "PROCESSING", Duration.ofMinutes(30))
-        );
+        return reserveOrGet(key) != null;
     }
 
     /**
@@ -78,13 +237,19 @@ public class IdempotencyService {
      *
      * This uses the LUA_FINALIZE script. Arguments passed to the script are:
      *  - expected value: "PROCESSING"
-     *  - new value: responseJson
-     *  - ttl seconds: DEFAULT_TTL_SECONDS
+     *  - new value: the compact encoding of response
+     *  - ttl seconds: hot-ttl-seconds
+     *  - completion channel: COMPLETION_CHANNEL_PREFIX + key
      */
-    public boolean finalizeResponseIfProcessing(String key, String responseJson) {
+    public boolean finalizeResponseIfProcessing(String key, PaymentResponse response) {
         // Atomically write final response into Redis only if key is in PROCESSING state (Lua CAS).
-        Long result = redisTemplate.execute(FINALIZE_SCRIPT, Collections.singletonList(KEY_PREFIX + key), "PROCESSING", responseJson, String.valueOf(DEFAULT_TTL_SECONDS));
-        return result != null && result == 1L;
+        String encoded = compact(response);
+        Long result = finalizeTimer.record(() -> redisTemplate.execute(FINALIZE_SCRIPT, Collections.singletonList(KEY_PREFIX + key), PROCESSING, encoded, hotTtlSeconds, COMPLETION_CHANNEL_PREFIX + key));
+        if (result != null && result == 1L) {
+            rememberIfFinal(key, toJson(response));
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -96,8 +261,90 @@ public class IdempotencyService {
     public boolean markFailedIfProcessing(String key, String reason) {
         // If a processing attempt failed, atomically mark the idempotency record as FAILED so later callers see failure.
         String failedValue = "FAILED:" + (reason == null ? "" : reason);
-        Long result = redisTemplate.execute(MARK_FAILED_SCRIPT, Collections.singletonList(KEY_PREFIX + key), "PROCESSING", failedValue, String.valueOf(DEFAULT_TTL_SECONDS));
-        return result != null && result == 1L;
+        Long result = markFailedTimer.record(() -> redisTemplate.execute(MARK_FAILED_SCRIPT, Collections.singletonList(KEY_PREFIX + key), PROCESSING, failedValue, hotTtlSeconds, COMPLETION_CHANNEL_PREFIX + key));
+        if (result != null && result == 1L) {
+            rememberIfFinal(key, failedValue);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Turn a stored hot-tier value back into what callers replay: compact payment entries become the
+     * response JSON; PROCESSING, FAILED:... and legacy JSON values are returned unchanged.
+     */
+    public String expand(String stored) {
+        if (stored == null || !stored.startsWith(COMPACT_PREFIX)) {
+            return stored;
+        }
+        int separator = stored.indexOf('|', COMPACT_PREFIX.length());
+        return toJson(PaymentResponse.processed(stored.substring(COMPACT_PREFIX.length(), separator), stored.substring(separator + 1)));
+    }
+
+    // Size of the hot tier: keys counted by SCAN (capped at maxScanKeys), bytes from MEMORY USAGE on a sample.
+    public TierStats hotTierStats(int maxScanKeys, int sampleSize) {
+        long keys = 0;
+        long sampledBytes = 0;
+        int sampled = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext() && keys < maxScanKeys) {
+                String redisKey = cursor.next();
+                keys++;
+                if (sampled < sampleSize) {
+                    Long bytes = memoryUsage(redisKey);
+                    if (bytes != null) {
+                        sampledBytes += bytes;
+                        sampled++;
+                    }
+                }
+            }
+        }
+        return new TierStats(keys, sampled == 0 ? 0 : sampledBytes / sampled * keys);
+    }
+
+    // Size of the cold tier: payments rows (planner estimate) and the idempotency index they are found through.
+    public TierStats coldTierStats() {
+        return new TierStats(paymentRepository.estimatedRowCount(), paymentRepository.idempotencyIndexBytes());
+    }
+
+    public record TierStats(long keys, long bytes) {}
+
+    private Long memoryUsage(String redisKey) {
+        return redisTemplate.execute((RedisCallback<Long>) connection -> (Long) connection.execute(
+                "MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), redisKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Only finalized values go into the near-cache; PROCESSING and absent keys always go to Redis.
+    private String rememberIfFinal(String key, String value) {
+        if (value != null && !PROCESSING.equals(value)) {
+            nearCache.put(key, value);
+        }
+        return value;
+    }
+
+    // Processed payments carry the standard message, so only id and status need to live in Redis.
+    private String compact(PaymentResponse response) {
+        if (PaymentResponse.PROCESSED_MESSAGE.equals(response.message())) {
+            return COMPACT_PREFIX + response.transactionId() + "|" + response.status();
+        }
+        return toJson(response);
+    }
+
+    private String toJson(PaymentResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize payment response", e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("idempotency.lookup")
+                .description("Idempotency key lookups per store tier")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     private static DefaultRedisScript<Long> createLongScript(String script) {
@@ -107,18 +354,39 @@ public class IdempotencyService {
         return redisScript;
     }
 
+    private static DefaultRedisScript<String> createStringScript(String script) {
+        DefaultRedisScript<String> redisScript = new DefaultRedisScript<>();
+        redisScript.setScriptText(script);
+        redisScript.setResultType(String.class);
+        return redisScript;
+    }
+
+    private static Timer redisTimer(MeterRegistry meterRegistry, String op) {
+        return Timer.builder("idempotency.redis")
+                .description("Latency of idempotency Redis operations")
+                .tag("op", op)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
     /**
      * Forcefully overwrite the record (used for idempotency restore/admin actions).
      */
     public void overwriteRecord(String key, String value) {
-        redisTemplate.opsForValue().set(KEY_PREFIX + key, value, Duration.ofMinutes(30));
+        nearCache.invalidate(key);
+        redisTemplate.opsForValue().set(KEY_PREFIX + key, value, ADMIN_TTL);
     }
 
     public String getPreviousResponse(String key) {
-        return redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        String finalized = nearCache.getIfPresent(key);
+        if (finalized != null) {
+            return finalized;
+        }
+        return rememberIfFinal(key, expand(getTimer.record(() -> redisTemplate.opsForValue().get(KEY_PREFIX + key))));
     }
 
     public void deleteKey(String key) {
+        nearCache.invalidate(key);
         redisTemplate.delete(KEY_PREFIX + key);
     }
 }
\ No newline at end of file
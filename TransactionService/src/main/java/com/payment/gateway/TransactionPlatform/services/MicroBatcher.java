@@ -0,0 +1,121 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Linger/drain micro-batcher behind PaymentGroupCommitWriter and UserServiceClient's lookup batching.
+ *
+ * Callers offer an item that carries its own future and wait on it. A single thread takes whatever is
+ * queued, lingers up to linger-micros for more (up to max-batch items) and hands the batch to the flush
+ * function, which completes each item's future. If flush throws, every item in the batch fails with that
+ * exception; items still queued at shutdown fail with the stopped exception.
+ */
+public class MicroBatcher<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final String name;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final BlockingQueue<T> queue;
+    private final Consumer<List<T>> flush;
+    private final Function<T, CompletableFuture<?>> completion;
+    private final Supplier<? extends RuntimeException> stopped;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public MicroBatcher(String name,
+                        int maxBatch,
+                        long lingerMicros,
+                        int queueCapacity,
+                        Consumer<List<T>> flush,
+                        Function<T, CompletableFuture<?>> completion,
+                        Supplier<? extends RuntimeException> stopped) {
+        this.name = name;
+        this.maxBatch = maxBatch;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flush = flush;
+        this.completion = completion;
+        this.stopped = stopped;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // False when the batcher is stopped or its queue is full; the caller then handles the item itself.
+    public boolean offer(T item) {
+        if (!running || !queue.offer(item)) {
+            return false;
+        }
+        // Shutdown may have raced the offer and already drained the queue. Take the item back if it is still
+        // queued; if it is gone, the batcher thread owns it and completes it (at the latest in failPending).
+        return running || !queue.remove(item);
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                T first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - batch.size());
+
+                // Linger briefly so items arriving right behind this one share the batch.
+                long lingerDeadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = lingerDeadline - System.nanoTime();
+                    T next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                flush.accept(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Shutdown: items collected but not flushed are failed below together with the queue.
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                log.error("MicroBatcher {}: unexpected flush error: {}", name, e.getMessage(), e);
+                batch.forEach(item -> completion.apply(item).completeExceptionally(e));
+                batch.clear();
+            }
+        }
+        failPending(batch);
+    }
+
+    private void failPending(List<T> drained) {
+        queue.drainTo(drained);
+        RuntimeException stoppedException = stopped.get();
+        drained.forEach(item -> completion.apply(item).completeExceptionally(stoppedException));
+    }
+
+    public void shutdown() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
+import com.payment.gateway.TransactionPlatform.repositories.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Short transactions around the outbox claim/lease lifecycle used by the relay.
+ *
+ * Rows are claimed by stamping a lease (locked_by / locked_until) while they are row-locked with
+ * FOR UPDATE SKIP LOCKED. The claim transaction commits before anything is sent to Kafka, so no
+ * DB connection is held during the broker round trip. A relay that dies mid-batch simply lets its
+ * lease expire and another instance picks the rows up.
+ *
+ * Failed rows are rescheduled with jittered exponential backoff (next_attempt_at) and quarantined
+ * (quarantined_at) after max-attempts, so a poison event stops competing with healthy ones and a
+ * broker outage does not turn into a retry storm. Quarantined rows keep their last_error for
+ * inspection; clearing quarantined_at and next_attempt_at re-queues them.
+ */
+@Service
+public class OutboxService {
+
+    // Matches the default varchar(255) Hibernate generates for last_error.
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final OutboxRepository outboxRepository;
+    private final Timer claimScanTimer;
+    private final double baseDelaySeconds;
+    private final double maxDelaySeconds;
+    private final int maxAttempts;
+
+    public OutboxService(OutboxRepository outboxRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${outbox.relay.backoff.base-seconds:1}") double baseDelaySeconds,
+                         @Value("${outbox.relay.backoff.max-seconds:300}") double maxDelaySeconds,
+                         @Value("${outbox.relay.max-attempts:10}") int maxAttempts) {
+        this.outboxRepository = outboxRepository;
+        this.baseDelaySeconds = baseDelaySeconds;
+        this.maxDelaySeconds = maxDelaySeconds;
+        this.maxAttempts = maxAttempts;
+        this.claimScanTimer = Timer.builder("outbox.claim.scan")
+                .description("Time to select and lock a batch of pending outbox rows")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    // Claim up to batchSize pending rows for the given relay instance, ordered by id.
+    @Transactional
+    public List<OutboxEntity> claimBatch(String owner, int batchSize, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = claimScanTimer.record(() -> outboxRepository.lockClaimableIds(now, batchSize));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        outboxRepository.lease(ids, owner, now.plus(lease));
+
+        List<OutboxEntity> claimed = new ArrayList<>(outboxRepository.findAllById(ids));
+        claimed.sort(Comparator.comparing(OutboxEntity::getId));
+        return claimed;
+    }
+
+    // Mark all acknowledged rows processed with a single UPDATE.
+    @Transactional
+    public int markPublished(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return outboxRepository.markPublished(ids, LocalDateTime.now());
+    }
+
+    // Record a failed send for all rows sharing the same error, release their lease and schedule the retry.
+    @Transactional
+    public int markFailed(Collection<Long> ids, String owner, String error) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return outboxRepository.markFailed(ids, owner, truncate(error), LocalDateTime.now(),
+                baseDelaySeconds, maxDelaySeconds, maxAttempts);
+    }
+
+    // True when one more failure moves the row into quarantine.
+    public boolean isLastAttempt(OutboxEntity event) {
+        return event.getAttempts() + 1 >= maxAttempts;
+    }
+
+    // Move one bounded chunk of processed rows into outbox_archive; each chunk commits on its own.
+    @Transactional
+    public int archiveChunk(LocalDateTime cutoff, int chunkSize) {
+        return outboxRepository.archiveProcessedBefore(cutoff, chunkSize);
+    }
+
+    @Transactional(readOnly = true)
+    public OutboxStats stats() {
+        return new OutboxStats(
+                outboxRepository.countByProcessedFalseAndQuarantinedAtIsNull(),
+                outboxRepository.countByQuarantinedAtIsNotNull(),
+                outboxRepository.outboxTableBytes(),
+                outboxRepository.archiveTableBytes());
+    }
+
+    public record OutboxStats(long pendingRows, long quarantinedRows, long outboxBytes, long archiveBytes) {}
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
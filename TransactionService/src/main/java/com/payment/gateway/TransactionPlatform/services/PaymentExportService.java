@@ -0,0 +1,203 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming export of one day's payments for settlement, as NDJSON or CSV, optionally gzipped.
+ *
+ * Rows are read through a server-side cursor: a read-only transaction (the Postgres driver only streams
+ * with autocommit off) and a fixed fetch size, so the driver holds at most fetch-size rows at a time. Each
+ * row is written from the ResultSet straight to the output (Jackson's streaming generator for NDJSON),
+ * without building entities or DTOs, so memory stays constant however many rows are exported. The day is
+ * a created_at range, served by idx_payments_created_at.
+ *
+ * Used by GET /api/v1/settlement/payments/export and by the PaymentExportJob command line runner.
+ * Metrics: payment.export.rows, payment.export.duration{format}.
+ */
+@Service
+public class PaymentExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportService.class);
+
+    private static final String EXPORT_SQL = """
+            SELECT transaction_id, user_id, amount, currency, status, idempotency_key, created_at
+            FROM payments
+            WHERE created_at >= ? AND created_at < ?
+            ORDER BY created_at, id
+            """;
+    private static final String CSV_HEADER = "transaction_id,user_id,amount,currency,status,idempotency_key,created_at\n";
+
+    public enum Format { NDJSON, CSV }
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonFactory jsonFactory;
+    private final MeterRegistry meterRegistry;
+    private final Counter exportedRows;
+
+    public PaymentExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.export.fetch-size:1000}") int fetchSize) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+        this.meterRegistry = meterRegistry;
+        this.exportedRows = Counter.builder("payment.export.rows")
+                .description("Payment rows written by settlement exports")
+                .register(meterRegistry);
+    }
+
+    // Write all payments whose created_at falls on the given day to out, which is closed when done; returns the row count.
+    public long export(LocalDate day, Format format, boolean gzip, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        long rows;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024)) {
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(jsonFactory.createGenerator(writer));
+            rows = stream(day, rowWriter);
+            rowWriter.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Timer.builder("payment.export.duration")
+                .description("Duration of settlement exports")
+                .tag("format", format.name().toLowerCase())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("PaymentExportService: exported {} payments for {} as {}{}", rows, day, format, gzip ? " (gzip)" : "");
+        return rows;
+    }
+
+    private long stream(LocalDate day, RowWriter rowWriter) {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        long[] count = {0};
+        readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.query(EXPORT_SQL, (RowCallbackHandler) rs -> {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                // Client went away or disk full: abort the query rather than reading the rest of the day.
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+            exportedRows.increment();
+        }, from, to));
+        return count[0];
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(JsonGenerator json) {
+            this.json = json;
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("transactionId", rs.getString(1));
+            json.writeStringField("userId", rs.getString(2));
+            json.writeFieldName("amount");
+            json.writeNumber(rs.getBigDecimal(3));
+            json.writeStringField("currency", rs.getString(4));
+            json.writeStringField("status", rs.getString(5));
+            json.writeStringField("idempotencyKey", rs.getString(6));
+            json.writeStringField("createdAt", isoTimestamp(rs.getTimestamp(7)));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer out;
+
+        CsvRowWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            field(rs.getString(1));
+            out.write(',');
+            field(rs.getString(2));
+            out.write(',');
+            field(rs.getBigDecimal(3) != null ? rs.getBigDecimal(3).toPlainString() : null);
+            out.write(',');
+            field(rs.getString(4));
+            out.write(',');
+            field(rs.getString(5));
+            out.write(',');
+            field(rs.getString(6));
+            out.write(',');
+            field(isoTimestamp(rs.getTimestamp(7)));
+            out.write('\n');
+        }
+
+        // RFC 4180: quote fields containing a separator, quote or line break; double embedded quotes.
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static String isoTimestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional group-commit mode for payment persistence (payment.group-commit.enabled).
+ *
+ * Request threads enqueue their payment + outbox rows and block until their write is committed.
+ * A MicroBatcher thread takes whatever is queued, waits at most linger-micros for more (up to
+ * max-batch writes) and inserts the whole micro-batch in one transaction, so N concurrent payments
+ * share one commit/fsync and one JDBC batch per table.
+ *
+ * Durability is unchanged: a caller only gets its response after the transaction containing its rows
+ * has committed, and a failed commit fails the caller. If a batch fails, each write is retried in its
+ * own transaction so one bad row cannot fail its neighbours. When the queue is full or the writer is
+ * shutting down the caller persists directly instead of waiting.
+ */
+@Component
+public class PaymentGroupCommitWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentGroupCommitWriter.class);
+
+    private final PaymentPersistenceService persistenceService;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long lingerMicros;
+    private final MicroBatcher<PendingWrite> batcher;
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+
+    public PaymentGroupCommitWriter(PaymentPersistenceService persistenceService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.group-commit.enabled:false}") boolean enabled,
+                                    @Value("${payment.group-commit.max-batch:64}") int maxBatch,
+                                    @Value("${payment.group-commit.linger-micros:500}") long lingerMicros,
+                                    @Value("${payment.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.persistenceService = persistenceService;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.lingerMicros = lingerMicros;
+        this.batcher = new MicroBatcher<>("payment-group-commit", maxBatch, lingerMicros, queueCapacity,
+                this::flush, PendingWrite::done, () -> new IllegalStateException("Payment group-commit writer stopped"));
+        this.batchSize = DistributionSummary.builder("payment.group_commit.batch.size")
+                .description("Payments committed per group-commit transaction")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("payment.group_commit.flush")
+                .description("Time to insert and commit one group-commit batch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        batcher.start();
+        log.info("PaymentGroupCommitWriter: started (maxBatch={}, lingerMicros={})", maxBatch, lingerMicros);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Enqueue the rows and block until the batch containing them has committed (or failed).
+    public void write(PaymentEntity payment, OutboxEntity outbox) {
+        PendingWrite pending = new PendingWrite(payment, outbox, new CompletableFuture<>());
+        if (!batcher.offer(pending)) {
+            persistenceService.persist(payment, outbox);
+            return;
+        }
+        try {
+            pending.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<PaymentEntity> payments = new ArrayList<>(batch.size());
+        List<OutboxEntity> outboxRows = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            payments.add(write.payment());
+            outboxRows.add(write.outbox());
+        }
+
+        long start = System.nanoTime();
+        try {
+            persistenceService.persistAll(payments, outboxRows);
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSize.record(batch.size());
+            batch.forEach(write -> write.done().complete(null));
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).done().completeExceptionally(e);
+                return;
+            }
+            log.warn("PaymentGroupCommitWriter: batch of {} failed ({}), retrying writes individually",
+                    batch.size(), e.getMessage());
+            for (PendingWrite write : batch) {
+                try {
+                    // Ids assigned during the rolled-back flush were never written; let Hibernate assign new ones.
+                    write.payment().setId(null);
+                    write.outbox().setId(null);
+                    persistenceService.persist(write.payment(), write.outbox());
+                    write.done().complete(null);
+                } catch (Exception ex) {
+                    write.done().completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+    }
+
+    private record PendingWrite(PaymentEntity payment, OutboxEntity outbox, CompletableFuture<Void> done) {}
+}
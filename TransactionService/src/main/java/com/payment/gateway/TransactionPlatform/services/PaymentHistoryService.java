@@ -0,0 +1,96 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.payment.gateway.TransactionPlatform.dto.PaymentHistoryItem;
+import com.payment.gateway.TransactionPlatform.dto.PaymentHistoryPage;
+import com.payment.gateway.TransactionPlatform.exception.InvalidCursorException;
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository.PaymentHistoryRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset-paginated payment history of one user, newest first.
+ *
+ * A page is "the next limit rows after (created_at, id) of the last row seen", answered by a range scan of
+ * idx_payments_user_created, so every page costs the same whether it is the first or the millionth and
+ * however many payments the user has (OFFSET would read and discard all earlier rows). id breaks ties
+ * between payments created in the same microsecond. The cursor is opaque to clients: base64url of
+ * "createdAtEpochMicros:id".
+ */
+@Service
+public class PaymentHistoryService {
+
+    private final PaymentRepository paymentRepository;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public PaymentHistoryService(PaymentRepository paymentRepository,
+                                 @Value("${payment.history.default-limit:50}") int defaultLimit,
+                                 @Value("${payment.history.max-limit:200}") int maxLimit) {
+        this.paymentRepository = paymentRepository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentHistoryPage page(String userId, String cursor, Integer requestedLimit) {
+        int limit = requestedLimit == null ? defaultLimit : Math.max(1, Math.min(requestedLimit, maxLimit));
+
+        // One row more than the page tells whether another page exists without a COUNT.
+        List<PaymentHistoryRow> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = paymentRepository.findHistory(userId, limit + 1);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            rows = paymentRepository.findHistoryBefore(userId, position.createdAt(), position.id(), limit + 1);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<PaymentHistoryRow> page = hasMore ? rows.subList(0, limit) : rows;
+        List<PaymentHistoryItem> items = page.stream()
+                .map(row -> new PaymentHistoryItem(row.getTransactionId(), row.getAmount(), row.getCurrency(),
+                        PaymentStatus.valueOf(row.getStatus()), row.getCreatedAt()))
+                .toList();
+        String nextCursor = null;
+        if (hasMore) {
+            PaymentHistoryRow last = page.get(page.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new PaymentHistoryPage(items, nextCursor);
+    }
+
+    private record Cursor(LocalDateTime createdAt, long id) {
+
+        String encode() {
+            LocalDateTime micros = createdAt.truncatedTo(ChronoUnit.MICROS);
+            long epochMicros = micros.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + micros.getNano() / 1_000;
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((epochMicros + ":" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                if (parts.length != 2) {
+                    throw new InvalidCursorException(cursor);
+                }
+                long epochMicros = Long.parseLong(parts[0]);
+                LocalDateTime createdAt = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000),
+                        (int) Math.floorMod(epochMicros, 1_000_000) * 1_000, ZoneOffset.UTC);
+                return new Cursor(createdAt, Long.parseLong(parts[1]));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new InvalidCursorException(cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.payment.gateway.TransactionPlatform.dto.OutboxWrittenEvent;
+import com.payment.gateway.TransactionPlatform.dto.PaymentsPersistedEvent;
+import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import com.payment.gateway.TransactionPlatform.repositories.OutboxRepository;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Write-only transactional stage of the payment pipeline. Callers must do all remote calls and
+ * serialization before entering here, so the DB connection is only held for the inserts and the commit.
+ */
+@Service
+public class PaymentPersistenceService {
+
+    private final PaymentRepository paymentRepository;
+    private final OutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PaymentPersistenceService(PaymentRepository paymentRepository,
+                                     OutboxRepository outboxRepository,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.paymentRepository = paymentRepository;
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Persist payment and outbox row atomically in one DB transaction.
+    @Transactional
+    public void persist(PaymentEntity payment, OutboxEntity outbox) {
+        paymentRepository.save(payment);
+        outboxRepository.save(outbox);
+        // Wakes the relay once this transaction commits (see OutboxRelay#onOutboxWritten).
+        eventPublisher.publishEvent(new OutboxWrittenEvent(outbox.getAggregateId()));
+        // Populates the payment status cache once this transaction commits (see PaymentStatusService).
+        eventPublisher.publishEvent(new PaymentsPersistedEvent(List.of(payment)));
+    }
+
+    // Persist a micro-batch of payments and their outbox rows in one transaction (group commit).
+    @Transactional
+    public void persistAll(List<PaymentEntity> payments, List<OutboxEntity> outboxRows) {
+        paymentRepository.saveAll(payments);
+        outboxRepository.saveAll(outboxRows);
+        outboxRows.forEach(outbox -> eventPublisher.publishEvent(new OutboxWrittenEvent(outbox.getAggregateId())));
+        eventPublisher.publishEvent(new PaymentsPersistedEvent(payments));
+    }
+}
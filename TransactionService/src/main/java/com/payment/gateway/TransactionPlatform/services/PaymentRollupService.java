@@ -0,0 +1,304 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.payment.gateway.TransactionPlatform.dto.PaymentsPersistedEvent;
+import com.payment.gateway.TransactionPlatform.dto.SettlementTotal;
+import com.payment.gateway.TransactionPlatform.dto.SettlementTotalsResponse;
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental settlement totals: count and sum of successful payments per hour and currency, and per user,
+ * hour and currency, kept in payment_rollup_hourly / payment_user_rollup_hourly.
+ *
+ * Committed payments (PaymentsPersistedEvent) are merged into in-memory deltas on the committing thread.
+ * flush() moves them into the rollup tables with one batched upsert per table, sorted by key so instances
+ * lock rows in the same order; the write path never touches rollup rows.
+ *
+ * Unflushed deltas die with the instance, so hours are rebuilt from payments once settle-minutes old
+ * (PaymentRollupFlusher); rebuild also backfills history. Settled hours belong to rebuild: flush drops their
+ * deltas, and flush and rebuild share an advisory lock, so no delta lands on top of a rebuild that already
+ * counted it. Reads sum the rows of the requested hours; totals lag commits by at most one flush interval.
+ *
+ * Metrics: payment.rollup.flush (latency), payment.rollup.flush.failures, payment.rollup.discarded,
+ * payment.rollup.pending.keys.
+ */
+@Service
+public class PaymentRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentRollupService.class);
+
+    // pg_advisory_xact_lock key shared by flush and rebuild transactions.
+    private static final long ROLLUP_LOCK_KEY = 0x726f6c6c7570L;
+
+    private static final String UPSERT_CURRENCY = """
+            INSERT INTO payment_rollup_hourly (bucket_hour, currency, payment_count, amount_sum)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (bucket_hour, currency) DO UPDATE
+            SET payment_count = payment_rollup_hourly.payment_count + EXCLUDED.payment_count,
+                amount_sum = payment_rollup_hourly.amount_sum + EXCLUDED.amount_sum
+            """;
+    private static final String UPSERT_USER = """
+            INSERT INTO payment_user_rollup_hourly (user_id, bucket_hour, currency, payment_count, amount_sum)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, bucket_hour, currency) DO UPDATE
+            SET payment_count = payment_user_rollup_hourly.payment_count + EXCLUDED.payment_count,
+                amount_sum = payment_user_rollup_hourly.amount_sum + EXCLUDED.amount_sum
+            """;
+
+    // Rebuilds replace the totals of the range with a GROUP BY over payments (idx_payments_created_at).
+    private static final String DELETE_CURRENCY_RANGE = "DELETE FROM payment_rollup_hourly WHERE bucket_hour >= ? AND bucket_hour < ?";
+    private static final String DELETE_USER_RANGE = "DELETE FROM payment_user_rollup_hourly WHERE bucket_hour >= ? AND bucket_hour < ?";
+    private static final String REBUILD_CURRENCY = """
+            INSERT INTO payment_rollup_hourly (bucket_hour, currency, payment_count, amount_sum)
+            SELECT date_trunc('hour', created_at), currency, count(*), sum(amount)
+            FROM payments
+            WHERE status = ? AND created_at >= ? AND created_at < ?
+            GROUP BY 1, 2
+            ON CONFLICT (bucket_hour, currency) DO UPDATE
+            SET payment_count = EXCLUDED.payment_count, amount_sum = EXCLUDED.amount_sum
+            """;
+    private static final String REBUILD_USER = """
+            INSERT INTO payment_user_rollup_hourly (user_id, bucket_hour, currency, payment_count, amount_sum)
+            SELECT user_id, date_trunc('hour', created_at), currency, count(*), sum(amount)
+            FROM payments
+            WHERE status = ? AND created_at >= ? AND created_at < ?
+            GROUP BY 1, 2, 3
+            ON CONFLICT (user_id, bucket_hour, currency) DO UPDATE
+            SET payment_count = EXCLUDED.payment_count, amount_sum = EXCLUDED.amount_sum
+            """;
+
+    private static final String CURRENCY_TOTALS = """
+            SELECT currency, sum(payment_count), sum(amount_sum)
+            FROM payment_rollup_hourly
+            WHERE bucket_hour >= ? AND bucket_hour < ?
+            GROUP BY currency
+            ORDER BY currency
+            """;
+    private static final String USER_TOTALS = """
+            SELECT currency, sum(payment_count), sum(amount_sum)
+            FROM payment_user_rollup_hourly
+            WHERE user_id = ? AND bucket_hour >= ? AND bucket_hour < ?
+            GROUP BY currency
+            ORDER BY currency
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration settleDelay;
+
+    private final ConcurrentHashMap<CurrencyHour, Delta> currencyDeltas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UserHour, Delta> userDeltas = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+    private final Counter discardedDeltas;
+
+    public PaymentRollupService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.rollup.settle-minutes:10}") long settleMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settleDelay = Duration.ofMinutes(settleMinutes);
+        this.flushTimer = Timer.builder("payment.rollup.flush")
+                .description("Time to upsert pending settlement deltas into the rollup tables")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("payment.rollup.flush.failures")
+                .description("Rollup flushes that failed; their deltas are kept for the next flush")
+                .register(meterRegistry);
+        this.discardedDeltas = Counter.builder("payment.rollup.discarded")
+                .description("Pending deltas dropped because their hour had settled and is owned by rebuild")
+                .register(meterRegistry);
+        meterRegistry.gauge("payment.rollup.pending.keys", this,
+                service -> service.currencyDeltas.size() + service.userDeltas.size());
+    }
+
+    // Runs on the committing thread right after commit; merge is atomic per key, so concurrent commits and a
+    // concurrent flush (which removes keys) never lose an update.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentsPersisted(PaymentsPersistedEvent event) {
+        for (PaymentEntity payment : event.payments()) {
+            if (payment.getStatus() != PaymentStatus.SUCCESS || payment.getCreatedAt() == null) {
+                continue;
+            }
+            LocalDateTime hour = payment.getCreatedAt().truncatedTo(ChronoUnit.HOURS);
+            Delta delta = new Delta(1, payment.getAmount());
+            currencyDeltas.merge(new CurrencyHour(hour, payment.getCurrency()), delta, Delta::plus);
+            userDeltas.merge(new UserHour(payment.getUserId(), hour, payment.getCurrency()), delta, Delta::plus);
+        }
+    }
+
+    // Upsert all pending deltas of unsettled hours in one transaction; returns the number of rollup rows touched.
+    public int flush() {
+        Map<CurrencyHour, Delta> currencyBatch = drain(currencyDeltas);
+        Map<UserHour, Delta> userBatch = drain(userDeltas);
+        if (currencyBatch.isEmpty() && userBatch.isEmpty()) {
+            return 0;
+        }
+        try {
+            Integer rows = flushTimer.record(() -> transactionTemplate.execute(status -> {
+                lockRollups();
+                // Decided under the lock: any rebuild of these hours has committed, or waits for this flush.
+                LocalDateTime settled = settledUntil();
+                List<Object[]> currencyRows = new ArrayList<>(currencyBatch.size());
+                currencyBatch.forEach((key, delta) -> {
+                    if (!key.hour().isBefore(settled)) {
+                        currencyRows.add(new Object[] {Timestamp.valueOf(key.hour()), key.currency(), delta.count(), delta.amount()});
+                    }
+                });
+                List<Object[]> userRows = new ArrayList<>(userBatch.size());
+                userBatch.forEach((key, delta) -> {
+                    if (!key.hour().isBefore(settled)) {
+                        userRows.add(new Object[] {key.userId(), Timestamp.valueOf(key.hour()), key.currency(), delta.count(), delta.amount()});
+                    }
+                });
+                jdbcTemplate.batchUpdate(UPSERT_CURRENCY, currencyRows);
+                jdbcTemplate.batchUpdate(UPSERT_USER, userRows);
+                discardedDeltas.increment(currencyBatch.size() + userBatch.size() - currencyRows.size() - userRows.size());
+                return currencyRows.size() + userRows.size();
+            }));
+            return rows != null ? rows : 0;
+        } catch (RuntimeException e) {
+            // Nothing was written: put the deltas back so the next flush retries them (or drops them once settled).
+            currencyBatch.forEach((key, delta) -> currencyDeltas.merge(key, delta, Delta::plus));
+            userBatch.forEach((key, delta) -> userDeltas.merge(key, delta, Delta::plus));
+            flushFailures.increment();
+            throw e;
+        }
+    }
+
+    // Recompute the totals of [from, to) from payments, one day per transaction. to is capped at the last
+    // settled hour, so hours still receiving deltas are never overwritten; flush drops deltas for the hours
+    // rebuilt here. Payments committed more than settle-minutes after their created_at are only picked up by
+    // a later rebuild of their hour. Returns the number of hours rebuilt.
+    public long rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime settled = settledUntil();
+        if (end.isAfter(settled)) {
+            end = settled;
+        }
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+        for (LocalDateTime chunkStart = start; chunkStart.isBefore(end); chunkStart = chunkStart.plusDays(1)) {
+            LocalDateTime chunkEnd = chunkStart.plusDays(1).isBefore(end) ? chunkStart.plusDays(1) : end;
+            Timestamp chunkFrom = Timestamp.valueOf(chunkStart);
+            Timestamp chunkTo = Timestamp.valueOf(chunkEnd);
+            transactionTemplate.executeWithoutResult(status -> {
+                lockRollups();
+                jdbcTemplate.update(DELETE_CURRENCY_RANGE, chunkFrom, chunkTo);
+                jdbcTemplate.update(DELETE_USER_RANGE, chunkFrom, chunkTo);
+                jdbcTemplate.update(REBUILD_CURRENCY, PaymentStatus.SUCCESS.name(), chunkFrom, chunkTo);
+                jdbcTemplate.update(REBUILD_USER, PaymentStatus.SUCCESS.name(), chunkFrom, chunkTo);
+            });
+        }
+        long hours = ChronoUnit.HOURS.between(start, end);
+        log.info("PaymentRollupService: rebuilt {} hours of settlement totals [{}, {})", hours, start, end);
+        return hours;
+    }
+
+    // Hours before this instant only change through late commits, which rebuilds pick up.
+    public LocalDateTime settledUntil() {
+        return LocalDateTime.now().minus(settleDelay).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public SettlementTotalsResponse totals(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        return new SettlementTotalsResponse(start, end, null,
+                jdbcTemplate.query(CURRENCY_TOTALS, PaymentRollupService::total, Timestamp.valueOf(start), Timestamp.valueOf(end)));
+    }
+
+    public SettlementTotalsResponse userTotals(String userId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        return new SettlementTotalsResponse(start, end, userId,
+                jdbcTemplate.query(USER_TOTALS, PaymentRollupService::total, userId, Timestamp.valueOf(start), Timestamp.valueOf(end)));
+    }
+
+    // Last chance to write deltas of payments committed before shutdown.
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("PaymentRollupService: could not flush pending totals on shutdown, closed hours are rebuilt later: {}", e.getMessage());
+        }
+    }
+
+    // Serializes flush and rebuild transactions across instances; released at commit or rollback.
+    private void lockRollups() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + ROLLUP_LOCK_KEY + ")");
+    }
+
+    private static SettlementTotal total(ResultSet rs, int rowNum) throws SQLException {
+        return new SettlementTotal(rs.getString(1), rs.getLong(2), rs.getBigDecimal(3));
+    }
+
+    // Removes every key individually (atomic against merge) into a map sorted by the upsert lock order.
+    private static <K extends Comparable<K>> Map<K, Delta> drain(ConcurrentHashMap<K, Delta> deltas) {
+        Map<K, Delta> batch = new TreeMap<>();
+        for (K key : deltas.keySet()) {
+            Delta delta = deltas.remove(key);
+            if (delta != null) {
+                batch.put(key, delta);
+            }
+        }
+        return batch;
+    }
+
+    private record Delta(long count, BigDecimal amount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount.add(other.amount));
+        }
+    }
+
+    private record CurrencyHour(LocalDateTime hour, String currency) implements Comparable<CurrencyHour> {
+        private static final Comparator<CurrencyHour> ORDER =
+                Comparator.comparing(CurrencyHour::hour).thenComparing(CurrencyHour::currency);
+
+        @Override
+        public int compareTo(CurrencyHour other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record UserHour(String userId, LocalDateTime hour, String currency) implements Comparable<UserHour> {
+        private static final Comparator<UserHour> ORDER =
+                Comparator.comparing(UserHour::userId).thenComparing(UserHour::hour).thenComparing(UserHour::currency);
+
+        @Override
+        public int compareTo(UserHour other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
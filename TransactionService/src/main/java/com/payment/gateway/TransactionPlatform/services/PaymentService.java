@@ -9,31 +9,34 @@ import com.payment.gateway.TransactionPlatform.dto.PaymentResponse;
 import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
 import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
 import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
-import com.payment.gateway.TransactionPlatform.repositories.OutboxRepository;
-import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import java.util.UUID;
 
+/**
+ * Payment pipeline in two stages:
+ *  1. validation (User Service HTTP call) and row building, with no transaction and no DB connection;
+ *  2. a short write-only transaction in PaymentPersistenceService that inserts the payment and its outbox row,
+ *     either directly or, in group-commit mode, batched with concurrent payments by PaymentGroupCommitWriter.
+ * Keeping the remote call out of the transaction means a slow User Service cannot drain the Hikari pool.
+ */
 @Service
 public class PaymentService {
-    private final PaymentRepository paymentRepository;
-    private final OutboxRepository outboxRepository;
+    private final PaymentPersistenceService persistenceService;
+    private final PaymentGroupCommitWriter groupCommitWriter;
     private final UserValidationService userValidationService;
     private final ObjectMapper objectMapper;
 
-    public PaymentService(PaymentRepository paymentRepository,
-                          OutboxRepository outboxRepository,
+    public PaymentService(PaymentPersistenceService persistenceService,
+                          PaymentGroupCommitWriter groupCommitWriter,
                           UserValidationService userValidationService,
                           ObjectMapper objectMapper) {
-        this.paymentRepository = paymentRepository;
-        this.outboxRepository = outboxRepository;
+        this.persistenceService = persistenceService;
+        this.groupCommitWriter = groupCommitWriter;
         this.userValidationService = userValidationService;
         this.objectMapper = objectMapper;
     }
 
-    // Persist payment and outbox row atomically in one DB transaction.
-    @Transactional
+    // Validate the user outside any transaction, then persist payment and outbox row atomically.
     public PaymentResponse process(PaymentRequest request, String userId, String idempotencyKey) {
         UserServiceResponse user = userValidationService.validateUserForPayment(userId);
 
@@ -46,32 +49,39 @@ public class PaymentService {
         payment.setStatus(PaymentStatus.SUCCESS);
         payment.setIdempotencyKey(idempotencyKey);
 
-        paymentRepository.save(payment);
+        OutboxEntity outbox = buildOutbox(payment, user);
 
+        if (groupCommitWriter.isEnabled()) {
+            groupCommitWriter.write(payment, outbox);
+        } else {
+            persistenceService.persist(payment, outbox);
+        }
+
+        return PaymentResponse.processed(transactionId, payment.getStatus().name());
+    }
+
+    private OutboxEntity buildOutbox(PaymentEntity payment, UserServiceResponse user) {
         try {
             OutboxEntity outbox = new OutboxEntity();
-            outbox.setAggregateId(transactionId);
+            outbox.setAggregateId(payment.getTransactionId());
             outbox.setEventType("PAYMENT_SUCCESS");
 
             PaymentEventPayload eventPayload = new PaymentEventPayload(
-                    transactionId,
+                    payment.getTransactionId(),
                     payment.getAmount(),
                     payment.getCurrency(),
                     payment.getStatus().name(),
-                    userId,
+                    payment.getUserId(),
                     user.email()
             );
             String payload = objectMapper.writeValueAsString(eventPayload);
             outbox.setPayload(payload);
             outbox.setProcessed(false); // Background worker will pick this up later
-
-            outboxRepository.save(outbox);
+            return outbox;
 
         } catch (JsonProcessingException e) {
-            // If serialization fails, we roll back the whole transaction!
+            // Serialization happens before the transaction starts, so nothing is written.
             throw new RuntimeException("Could not create outbox message", e);
         }
-
-        return new PaymentResponse(transactionId, "SUCCESS", "Payment processed successfully");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.payment.gateway.TransactionPlatform.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.payment.gateway.TransactionPlatform.dto.PaymentStatusResponse;
+import com.payment.gateway.TransactionPlatform.dto.PaymentsPersistedEvent;
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read side for GET /api/v1/payments/{transactionId}.
+ *
+ * A per-instance Caffeine cache is written through when payments commit (PaymentsPersistedEvent, after
+ * commit, so it never holds a payment that was rolled back), so a client checking the payment it just made
+ * on the same instance is answered from memory. Misses (other instances, evicted or older payments) read the
+ * projection from Postgres in a read-only transaction and populate the cache. Payments are never updated
+ * after insert, so entries cannot go stale; the TTL only bounds memory. Unknown ids are not cached, a payment
+ * committed on another instance must become visible at once.
+ *
+ * Nothing here touches Redis, the idempotency store or the write transaction.
+ *
+ * Metrics: cache.* with cache=payments.status, payment.status.db.lookup (fallback latency).
+ */
+@Service
+public class PaymentStatusService {
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, PaymentStatusResponse> statusCache;
+    private final Timer dbLookupTimer;
+
+    public PaymentStatusService(PaymentRepository paymentRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.status-cache.max-size:100000}") long maxSize,
+                                @Value("${payment.status-cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.paymentRepository = paymentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.statusCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.dbLookupTimer = Timer.builder("payment.status.db.lookup")
+                .description("Payment status reads that missed the cache and went to Postgres")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, statusCache, "payments.status");
+    }
+
+    public Optional<PaymentStatusResponse> find(String transactionId) {
+        PaymentStatusResponse cached = statusCache.getIfPresent(transactionId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<PaymentStatusResponse> stored = dbLookupTimer.record(() ->
+                readOnlyTransaction.execute(status -> paymentRepository.findStatusByTransactionId(transactionId)));
+        stored.ifPresent(payment -> statusCache.put(transactionId, payment));
+        return stored;
+    }
+
+    // Write-through: runs on the committing thread right after commit; a few map puts per payment batch.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentsPersisted(PaymentsPersistedEvent event) {
+        for (PaymentEntity payment : event.payments()) {
+            statusCache.put(payment.getTransactionId(), new PaymentStatusResponse(
+                    payment.getTransactionId(),
+                    payment.getUserId(),
+                    payment.getAmount(),
+                    payment.getCurrency(),
+                    payment.getStatus(),
+                    payment.getCreatedAt()));
+        }
+    }
+}
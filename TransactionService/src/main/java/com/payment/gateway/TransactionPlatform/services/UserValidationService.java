@@ -1,26 +1,146 @@
 package com.payment.gateway.TransactionPlatform.services;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.payment.gateway.TransactionPlatform.client.UserServiceClient;
 import com.payment.gateway.TransactionPlatform.client.dto.UserServiceResponse;
 import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
+/**
+ * KYC check for the payment path, backed by a bounded local cache of User Service lookups.
+ *
+ * - Entries live ttl-seconds; after refresh-seconds the next read triggers an asynchronous reload,
+ *   so users that pay regularly are kept warm and never wait on the User Service (refresh-ahead).
+ *   If a reload fails the old entry is kept until it expires. Reloads are conditional GETs against the
+ *   cached ETag, so an unchanged user costs a 304 and a version-only query on the User Service.
+ * - 404s are cached for negative-ttl-seconds so unknown user ids do not hammer the User Service.
+ * - Only a VERIFIED entry is trusted from cache. A cached non-VERIFIED status is always re-fetched
+ *   before the payment is rejected, so a user who has just completed KYC is never held back by a
+ *   stale entry, and no status is ever upgraded without the User Service saying so.
+ *
+ * Metrics: cache.* with cache=users.kyc (hit ratio, evictions, size) and user.cache.load (latency).
+ */
 @Service
 public class UserValidationService {
 
+	private static final String VERIFIED = "VERIFIED";
+
 	private final UserServiceClient userServiceClient;
+	private final LoadingCache<String, CachedUser> userCache;
+	private final Timer loadTimer;
 
-	public UserValidationService(UserServiceClient userServiceClient) {
+	public UserValidationService(UserServiceClient userServiceClient,
+			MeterRegistry meterRegistry,
+			@Value("${user.cache.max-size:50000}") long maxSize,
+			@Value("${user.cache.ttl-seconds:60}") long ttlSeconds,
+			@Value("${user.cache.refresh-seconds:30}") long refreshSeconds,
+			@Value("${user.cache.negative-ttl-seconds:10}") long negativeTtlSeconds) {
 		this.userServiceClient = userServiceClient;
+		this.loadTimer = Timer.builder("user.cache.load")
+				.description("Latency of User Service lookups made by the KYC cache")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		this.userCache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new CachedUserExpiry(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+				.refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+				.recordStats()
+				.build(new CacheLoader<>() {
+					@Override
+					public CachedUser load(String userId) {
+						return UserValidationService.this.load(userId);
+					}
+
+					@Override
+					public CachedUser reload(String userId, CachedUser cached) {
+						return revalidate(userId, cached);
+					}
+				});
+		CaffeineCacheMetrics.monitor(meterRegistry, userCache, "users.kyc");
 	}
 
 	public UserServiceResponse validateUserForPayment(String userId) {
-		UserServiceResponse user = userServiceClient.getUser(userId);
+		CachedUser cached = userCache.get(userId);
 
-		if (!"VERIFIED".equalsIgnoreCase(user.kycStatus())) {
+		if (cached.found() && !isVerified(cached.user())) {
+			// Never reject (or accept) on a cached non-VERIFIED status: ask the User Service again.
+			cached = revalidate(userId, cached);
+			userCache.put(userId, cached);
+		}
+
+		if (!cached.found()) {
+			throw new UserServiceException.UserNotFoundException(userId);
+		}
+		if (!isVerified(cached.user())) {
 			throw new UserServiceException.UserNotVerifiedException(userId);
 		}
 
-		return user;
+		return cached.user();
+	}
+
+	// Cache loader: a 404 becomes a negative entry; any other failure propagates and is not cached.
+	private CachedUser load(String userId) {
+		return loadTimer.record(() -> {
+			try {
+				return new CachedUser(userServiceClient.getUser(userId), null);
+			} catch (UserServiceException.UserNotFoundException e) {
+				return CachedUser.NOT_FOUND;
+			}
+		});
+	}
+
+	// Reload of a known user: a 304 keeps the cached user; the first reload of an entry picks up its ETag.
+	private CachedUser revalidate(String userId, CachedUser cached) {
+		if (!cached.found()) {
+			return load(userId);
+		}
+		return loadTimer.record(() -> {
+			try {
+				UserServiceClient.VersionedUser user = userServiceClient.revalidate(userId, cached.user(), cached.etag());
+				return new CachedUser(user.user(), user.etag());
+			} catch (UserServiceException.UserNotFoundException e) {
+				return CachedUser.NOT_FOUND;
+			}
+		});
+	}
+
+	private static boolean isVerified(UserServiceResponse user) {
+		return VERIFIED.equalsIgnoreCase(user.kycStatus());
+	}
+
+	// user is null for a cached 404; etag is null until the entry has been revalidated once.
+	private record CachedUser(UserServiceResponse user, String etag) {
+		static final CachedUser NOT_FOUND = new CachedUser(null, null);
+
+		boolean found() {
+			return user != null;
+		}
+	}
+
+	// Positive entries live ttl, negative (404) entries negativeTtl; a refresh restarts the clock.
+	private record CachedUserExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, CachedUser> {
+		@Override
+		public long expireAfterCreate(String userId, CachedUser value, long currentTime) {
+			return (value.found() ? ttl : negativeTtl).toNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(String userId, CachedUser value, long currentTime, long currentDuration) {
+			return expireAfterCreate(userId, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String userId, CachedUser value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
 	}
 }
@@ -0,0 +1,166 @@
+package com.payment.gateway.TransactionPlatform;
+
+import com.payment.gateway.TransactionPlatform.models.OutboxEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentEntity;
+import com.payment.gateway.TransactionPlatform.models.PaymentStatus;
+import com.payment.gateway.TransactionPlatform.repositories.OutboxRepository;
+import com.payment.gateway.TransactionPlatform.repositories.PaymentRepository;
+import com.payment.gateway.TransactionPlatform.services.PaymentPersistenceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts/sec of the payment write path against the local Postgres from docker-compose.
+ *
+ * "before" replays what IDENTITY ids forced: one INSERT ... RETURNING id round trip per row.
+ * "after" goes through the sequence-backed entities with JDBC batching enabled.
+ * Each is measured per payment (one transaction per payment, like POST /api/v1/payments) and in bulk
+ * (BULK_CHUNK payments per transaction).
+ *
+ * Opt-in: ./mvnw -pl transactionservice test -Dtest=PaymentInsertBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentInsertBenchmarkTests {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentInsertBenchmarkTests.class);
+
+	private static final int PAYMENTS = 2_000;
+	private static final int BULK_CHUNK = 500;
+	private static final String KEY_PREFIX = "bench-";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private PaymentPersistenceService persistenceService;
+
+	@Autowired
+	private PaymentRepository paymentRepository;
+
+	@Autowired
+	private OutboxRepository outboxRepository;
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM outbox WHERE event_type = 'BENCHMARK'");
+		jdbcTemplate.update("DELETE FROM payments WHERE idempotency_key LIKE '" + KEY_PREFIX + "%'");
+	}
+
+	@Test
+	void perPaymentTransactions() {
+		warmUp();
+		double before = measure(() -> {
+			for (int i = 0; i < PAYMENTS; i++) {
+				transactionTemplate.executeWithoutResult(status -> insertRowByRow());
+			}
+		});
+		double after = measure(() -> {
+			for (int i = 0; i < PAYMENTS; i++) {
+				persistenceService.persist(newPayment(), newOutbox());
+			}
+		});
+		report("per-payment", before, after);
+	}
+
+	@Test
+	void bulkTransactions() {
+		warmUp();
+		double before = measure(() -> {
+			for (int done = 0; done < PAYMENTS; done += BULK_CHUNK) {
+				transactionTemplate.executeWithoutResult(status -> {
+					for (int i = 0; i < BULK_CHUNK; i++) {
+						insertRowByRow();
+					}
+				});
+			}
+		});
+		double after = measure(() -> {
+			for (int done = 0; done < PAYMENTS; done += BULK_CHUNK) {
+				List<PaymentEntity> payments = new ArrayList<>(BULK_CHUNK);
+				List<OutboxEntity> outboxRows = new ArrayList<>(BULK_CHUNK);
+				for (int i = 0; i < BULK_CHUNK; i++) {
+					payments.add(newPayment());
+					outboxRows.add(newOutbox());
+				}
+				transactionTemplate.executeWithoutResult(status -> {
+					paymentRepository.saveAll(payments);
+					outboxRepository.saveAll(outboxRows);
+				});
+			}
+		});
+		report("bulk(" + BULK_CHUNK + "/tx)", before, after);
+	}
+
+	private void warmUp() {
+		for (int i = 0; i < 100; i++) {
+			transactionTemplate.executeWithoutResult(status -> insertRowByRow());
+			persistenceService.persist(newPayment(), newOutbox());
+		}
+	}
+
+	// One round trip per row, waiting for the generated id each time (the IDENTITY behaviour).
+	private void insertRowByRow() {
+		String transactionId = UUID.randomUUID().toString();
+		jdbcTemplate.queryForObject("""
+				INSERT INTO payments (id, transaction_id, user_id, amount, currency, status, idempotency_key, created_at)
+				VALUES (nextval('payments_seq'), ?, 'bench-user', 10.00, 'INR', 'SUCCESS', ?, now())
+				RETURNING id""", Long.class, transactionId, KEY_PREFIX + transactionId);
+		jdbcTemplate.queryForObject("""
+				INSERT INTO outbox (id, aggregate_id, event_type, payload, created_at, processed, attempts)
+				VALUES (nextval('outbox_seq'), ?, 'BENCHMARK', '{}', now(), true, 0)
+				RETURNING id""", Long.class, transactionId);
+	}
+
+	private PaymentEntity newPayment() {
+		String transactionId = UUID.randomUUID().toString();
+		PaymentEntity payment = new PaymentEntity();
+		payment.setTransactionId(transactionId);
+		payment.setUserId("bench-user");
+		payment.setAmount(new BigDecimal("10.00"));
+		payment.setCurrency("INR");
+		payment.setStatus(PaymentStatus.SUCCESS);
+		payment.setIdempotencyKey(KEY_PREFIX + transactionId);
+		return payment;
+	}
+
+	private OutboxEntity newOutbox() {
+		OutboxEntity outbox = new OutboxEntity();
+		outbox.setAggregateId(UUID.randomUUID().toString());
+		outbox.setEventType("BENCHMARK");
+		outbox.setPayload("{}");
+		// Already "published" so the relay leaves benchmark rows alone.
+		outbox.setProcessed(true);
+		return outbox;
+	}
+
+	// Returns inserted rows per second (two rows per payment).
+	private double measure(Runnable work) {
+		long start = System.nanoTime();
+		work.run();
+		double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+		return (PAYMENTS * 2) / seconds;
+	}
+
+	private void report(String mode, double before, double after) {
+		log.info("Payment insert benchmark [{}]: before={} rows/s, after={} rows/s, speedup={}x",
+				mode, String.format("%.0f", before), String.format("%.0f", after), String.format("%.2f", after / before));
+	}
+}
@@ -0,0 +1,167 @@
+package com.payment.gateway.TransactionPlatform;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Max sustainable RPS and p99 of POST /api/v1/payments in platform-thread mode against virtual-thread mode
+ * (spring.threads.virtual.enabled), using the local Postgres/Redis from docker-compose.
+ *
+ * Each mode boots the whole application on a random port. The User Service is replaced by a stub that answers
+ * after USER_SERVICE_LATENCY_MS, so every payment does real blocking I/O (HTTP, Redis, JDBC). Every request
+ * uses a fresh user id and idempotency key, so neither the KYC cache nor the idempotency store short-circuits it.
+ * The User Service bulkhead is opened up for the run; otherwise it, not the threading model, is the limit.
+ *
+ * Load is open-loop: requests start on schedule whether or not earlier ones have answered, and latency is
+ * measured from the scheduled start (no coordinated omission). RPS steps up until a step misses the SLO
+ * (p99 above P99_SLO_MS or more than 1% errors); the last step that met it is the max sustainable RPS.
+ *
+ * Opt-in: ./mvnw -pl transactionservice test -Dtest=PaymentLoadTests -Dloadtest=true
+ * (optional: -DuserServiceLatencyMs=100 -DstepSeconds=10)
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PaymentLoadTests {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentLoadTests.class);
+
+	private static final int[] RPS_STEPS = {100, 200, 400, 800, 1200, 1600, 2400, 3200, 4800};
+	private static final long USER_SERVICE_LATENCY_MS = Long.getLong("userServiceLatencyMs", 100);
+	private static final long STEP_SECONDS = Long.getLong("stepSeconds", 10);
+	private static final long P99_SLO_MS = 250;
+	private static final double MAX_ERROR_RATIO = 0.01;
+	private static final String BODY = "{\"amount\": 10, \"currency\": \"INR\", \"sourceAccount\": \"A\", \"destinationAccount\": \"B\"}";
+
+	private HttpServer userServiceStub;
+
+	@BeforeEach
+	void startUserServiceStub() throws IOException {
+		userServiceStub = HttpServer.create(new InetSocketAddress(0), 1024);
+		userServiceStub.createContext("/api/v1/users/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String userId = path.substring(path.lastIndexOf('/') + 1);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(USER_SERVICE_LATENCY_MS));
+			byte[] body = ("{\"userId\":\"" + userId + "\",\"email\":\"load@example.com\",\"name\":\"Load Test\","
+					+ "\"phone\":null,\"kycStatus\":\"VERIFIED\"}").getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		// The stub must never be the bottleneck: one virtual thread per request.
+		userServiceStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		userServiceStub.start();
+	}
+
+	@AfterEach
+	void stopUserServiceStub() {
+		userServiceStub.stop(0);
+	}
+
+	@Test
+	void platformVersusVirtualThreads() {
+		ModeResult platform = runMode(false);
+		ModeResult virtual = runMode(true);
+
+		log.info("Payment load test (User Service latency {}ms, SLO p99<={}ms): platform max={} rps (p99={}ms), virtual max={} rps (p99={}ms)",
+				USER_SERVICE_LATENCY_MS, P99_SLO_MS,
+				platform.maxSustainableRps(), platform.p99Ms(), virtual.maxSustainableRps(), virtual.p99Ms());
+	}
+
+	private ModeResult runMode(boolean virtualThreads) {
+		String mode = virtualThreads ? "virtual" : "platform";
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TransactionPlatformApplication.class)
+				.profiles("test")
+				.properties(
+						"server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"user.service.base-url=http://localhost:" + userServiceStub.getAddress().getPort(),
+						"user.service.bulkhead.max-concurrent=100000",
+						"user.service.read-timeout-ms=5000",
+						"spring.jpa.show-sql=false",
+						"logging.level.root=WARN")
+				.run()) {
+			int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+			URI uri = URI.create("http://localhost:" + port + "/api/v1/payments");
+			HttpClient client = HttpClient.newBuilder()
+					.version(HttpClient.Version.HTTP_1_1)
+					.executor(Executors.newVirtualThreadPerTaskExecutor())
+					.build();
+
+			// Warm-up at the lowest step (JIT, pools, sequences); not reported.
+			runStep(client, uri, RPS_STEPS[0]);
+
+			ModeResult result = new ModeResult(0, 0);
+			for (int rps : RPS_STEPS) {
+				StepResult step = runStep(client, uri, rps);
+				log.info("Payment load test [{}] {} rps: p99={}ms errors={}/{}", mode, rps, step.p99Ms(), step.errors(), step.requests());
+				if (step.p99Ms() > P99_SLO_MS || step.errors() > step.requests() * MAX_ERROR_RATIO) {
+					break;
+				}
+				result = new ModeResult(rps, step.p99Ms());
+			}
+			return result;
+		}
+	}
+
+	private StepResult runStep(HttpClient client, URI uri, int rps) {
+		int requests = (int) (rps * STEP_SECONDS);
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+		List<CompletableFuture<Long>> latencies = new ArrayList<>(requests);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			long scheduledAt = start + i * intervalNanos;
+			long wait = scheduledAt - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			latencies.add(client.sendAsync(paymentRequest(uri), HttpResponse.BodyHandlers.discarding())
+					.handle((response, ex) -> ex == null && response.statusCode() == 200 ? System.nanoTime() - scheduledAt : -1L));
+		}
+
+		long[] okNanos = latencies.stream().mapToLong(CompletableFuture::join).filter(nanos -> nanos >= 0).sorted().toArray();
+		int errors = requests - okNanos.length;
+		long p99Ms = okNanos.length == 0 ? Long.MAX_VALUE
+				: TimeUnit.NANOSECONDS.toMillis(okNanos[Math.min(okNanos.length - 1, (int) Math.ceil(okNanos.length * 0.99) - 1)]);
+		return new StepResult(requests, errors, p99Ms);
+	}
+
+	private static HttpRequest paymentRequest(URI uri) {
+		return HttpRequest.newBuilder(uri)
+				.timeout(Duration.ofSeconds(5))
+				.header("Content-Type", "application/json")
+				.header("X-User-Id", "load-" + UUID.randomUUID())
+				.header("X-Idempotency-Key", "load-" + UUID.randomUUID())
+				.POST(HttpRequest.BodyPublishers.ofString(BODY))
+				.build();
+	}
+
+	private record StepResult(int requests, int errors, long p99Ms) {}
+
+	private record ModeResult(int maxSustainableRps, long p99Ms) {}
+}
@@ -0,0 +1,155 @@
+package com.payment.gateway.TransactionPlatform;
+
+import com.payment.gateway.TransactionPlatform.client.dto.UserServiceResponse;
+import com.payment.gateway.TransactionPlatform.dto.PaymentRequest;
+import com.payment.gateway.TransactionPlatform.services.PaymentService;
+import com.payment.gateway.TransactionPlatform.services.UserValidationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentTransactionBoundaryTests {
+
+	private static final long USER_SERVICE_LATENCY_MS = 500;
+
+	@Autowired
+	private PaymentService paymentService;
+
+	@MockBean
+	private UserValidationService userValidationService;
+
+	@Test
+	void slowUserServiceDoesNotHoldDatabaseConnection() {
+		// Everything below is measured on the calling thread only, so other pool users cannot affect it.
+		// Context startup also ran on this thread, hence the baselines.
+		ConnectionStats stats = ConnectionTrackingDataSource.currentThread();
+		int heldBefore = stats.held.get();
+		int openedBefore = stats.opened.get();
+		stats.maxHoldNanos.set(0);
+		AtomicBoolean transactionActiveDuringLookup = new AtomicBoolean(true);
+		AtomicInteger connectionsHeldDuringLookup = new AtomicInteger(-1);
+		AtomicInteger connectionsOpenedDuringLookup = new AtomicInteger(-1);
+
+		when(userValidationService.validateUserForPayment(anyString())).thenAnswer(invocation -> {
+			transactionActiveDuringLookup.set(TransactionSynchronizationManager.isActualTransactionActive());
+			connectionsHeldDuringLookup.set(stats.held.get() - heldBefore);
+			int openedBeforeLookup = stats.opened.get();
+			Thread.sleep(USER_SERVICE_LATENCY_MS);
+			connectionsOpenedDuringLookup.set(stats.opened.get() - openedBeforeLookup);
+			return new UserServiceResponse("test-user-id", "test@example.com", "Test User", null, "VERIFIED");
+		});
+
+		paymentService.process(
+				new PaymentRequest(new BigDecimal("10.00"), "INR", "A", "B"),
+				"test-user-id",
+				"boundary-" + UUID.randomUUID());
+
+		// The User Service call ran outside any transaction, with no connection checked out by this thread.
+		assertThat(transactionActiveDuringLookup).isFalse();
+		assertThat(connectionsHeldDuringLookup.get()).isZero();
+		assertThat(connectionsOpenedDuringLookup.get()).isZero();
+
+		// This thread did write, and held each connection for the write transaction only, not the User Service latency.
+		assertThat(stats.opened.get() - openedBefore).isPositive();
+		assertThat(stats.held.get()).isEqualTo(heldBefore);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(stats.maxHoldNanos.get())).isLessThan(USER_SERVICE_LATENCY_MS);
+	}
+
+	@TestConfiguration
+	static class ConnectionTrackingConfig {
+
+		@Bean
+		static BeanPostProcessor connectionTrackingDataSource() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource && !(bean instanceof ConnectionTrackingDataSource)
+							? new ConnectionTrackingDataSource(dataSource)
+							: bean;
+				}
+			};
+		}
+	}
+
+	// Per-thread connection checkouts: opened counts getConnection() calls, held those not yet closed.
+	static final class ConnectionStats {
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger held = new AtomicInteger();
+		final AtomicLong maxHoldNanos = new AtomicLong();
+	}
+
+	static final class ConnectionTrackingDataSource extends DelegatingDataSource {
+
+		private static final ThreadLocal<ConnectionStats> STATS = ThreadLocal.withInitial(ConnectionStats::new);
+
+		ConnectionTrackingDataSource(DataSource target) {
+			super(target);
+		}
+
+		static ConnectionStats currentThread() {
+			return STATS.get();
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return track(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return track(super.getConnection(username, password));
+		}
+
+		// Stats belong to the thread that checked the connection out, even if another thread closes it.
+		private static Connection track(Connection connection) {
+			ConnectionStats stats = STATS.get();
+			stats.opened.incrementAndGet();
+			stats.held.incrementAndGet();
+			long openedAt = System.nanoTime();
+			AtomicBoolean closed = new AtomicBoolean();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+					(proxy, method, args) -> {
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+							stats.held.decrementAndGet();
+							stats.maxHoldNanos.accumulateAndGet(System.nanoTime() - openedAt, Math::max);
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+	}
+}
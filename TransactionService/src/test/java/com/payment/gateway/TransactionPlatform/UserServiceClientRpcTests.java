@@ -0,0 +1,143 @@
+package com.payment.gateway.TransactionPlatform;
+
+import com.payment.gateway.TransactionPlatform.client.UserServiceClient;
+import com.payment.gateway.TransactionPlatform.client.UserServiceResilience;
+import com.payment.gateway.TransactionPlatform.client.dto.UserServiceResponse;
+import com.payment.gateway.TransactionPlatform.exception.UserServiceException;
+import com.payment.gateway.UserRpc.UserRecord;
+import com.payment.gateway.UserRpc.UserRpcServer;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * UserServiceClient with user.service.transport=binary against a real UserRpcServer on port 0, with a stub
+ * REST endpoint as the fallback: concurrent multiplexed lookups, NOT_FOUND, and a server restart.
+ */
+class UserServiceClientRpcTests {
+
+	private static final long RECONNECT_BACKOFF_MS = 200;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger restLookups = new AtomicInteger();
+
+	private UserRpcServer rpcServer;
+	private HttpServer restServer;
+	private UserServiceClient client;
+
+	@BeforeEach
+	void startServers() throws IOException {
+		rpcServer = newRpcServer(0);
+		rpcServer.start();
+
+		restServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		restServer.createContext("/api/v1/users/", exchange -> {
+			restLookups.incrementAndGet();
+			String userId = exchange.getRequestURI().getPath().substring("/api/v1/users/".length());
+			byte[] body = ("{\"userId\":\"" + userId + "\",\"email\":\"" + userId + "@example.com\",\"name\":\"REST\","
+					+ "\"phone\":null,\"kycStatus\":\"VERIFIED\"}").getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		restServer.start();
+
+		UserServiceResilience resilience = new UserServiceResilience(meterRegistry, 100, 1000, 50, 20, 0.5, 10, 3,
+				false, 20, false);
+		client = new UserServiceClient(RestClient.builder(), resilience, meterRegistry,
+				"http://localhost:" + restServer.getAddress().getPort(), 500, 2000, false,
+				false, 100, 300, 10000,
+				"binary", "localhost", rpcServer.port(), RECONNECT_BACKOFF_MS);
+	}
+
+	@AfterEach
+	void stopServers() {
+		client.shutdown();
+		rpcServer.stop();
+		restServer.stop(0);
+	}
+
+	// Users "user-<n>" exist, anything else is NOT_FOUND; random delays make responses come back out of order.
+	private static UserRpcServer newRpcServer(int port) {
+		return new UserRpcServer(port, userId -> {
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return userId.startsWith("user-")
+					? new UserRecord(userId, userId + "@example.com", "RPC", null, "VERIFIED")
+					: null;
+		});
+	}
+
+	@Test
+	void concurrentLookupsShareOneConnectionAndGetTheirOwnAnswers() throws Exception {
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<UserServiceResponse>> lookups = new ArrayList<>();
+			for (int i = 0; i < 500; i++) {
+				String userId = "user-" + i;
+				lookups.add(callers.submit(() -> client.getUser(userId)));
+			}
+			for (int i = 0; i < lookups.size(); i++) {
+				UserServiceResponse user = lookups.get(i).get();
+				assertThat(user.userId()).isEqualTo("user-" + i);
+				assertThat(user.email()).isEqualTo("user-" + i + "@example.com");
+				assertThat(user.name()).isEqualTo("RPC");
+			}
+		}
+		assertThat(restLookups).hasValue(0);
+	}
+
+	@Test
+	void notFoundOverRpcIsUserNotFound() {
+		assertThatThrownBy(() -> client.getUser("missing"))
+				.isInstanceOf(UserServiceException.UserNotFoundException.class);
+		assertThat(restLookups).hasValue(0);
+	}
+
+	@Test
+	void fallsBackToRestWhileServerIsDownThenReconnects() throws Exception {
+		int port = rpcServer.port();
+		assertThat(client.getUser("user-1").name()).isEqualTo("RPC");
+
+		rpcServer.stop();
+		assertThat(client.getUser("user-2").name()).isEqualTo("REST");
+		assertThat(client.getUser("user-3").name()).isEqualTo("REST");
+		assertThat(restLookups).hasValue(2);
+		assertThat(meterRegistry.counter("user.client.transport.fallback").count()).isEqualTo(2);
+
+		rpcServer = newRpcServer(port);
+		rpcServer.start();
+		// Lookups keep falling back to REST until the reconnect backoff has passed; poll instead of sleeping.
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!client.getUser("user-4").name().equals("RPC")) {
+			assertThat(deadline - System.nanoTime()).as("reconnected within 10s").isPositive();
+			Thread.sleep(10);
+		}
+		int restLookupsBeforeReconnect = restLookups.get();
+		assertThat(client.getUser("user-5").name()).isEqualTo("RPC");
+		assertThat(restLookups).hasValue(restLookupsBeforeReconnect);
+	}
+}
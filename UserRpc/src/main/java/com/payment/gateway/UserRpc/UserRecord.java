@@ -0,0 +1,10 @@
+package com.payment.gateway.UserRpc;
+
+// The user fields carried by a GET_USER response; kycStatus is the enum name.
+public record UserRecord(
+		String userId,
+		String email,
+		String name,
+		String phone,
+		String kycStatus
+) {}
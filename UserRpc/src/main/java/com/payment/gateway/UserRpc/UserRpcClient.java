@@ -0,0 +1,235 @@
+package com.payment.gateway.UserRpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binary user lookups over one persistent, multiplexed TCP connection to UserRpcServer.
+ * Frame format: see UserRpcProtocol.
+ *
+ * Callers write a tagged request under the connection's write lock and wait on a future; a reader thread
+ * completes futures by request id as responses arrive, so any number of lookups share the connection.
+ * The connection is opened lazily and replaced after any I/O failure; reconnects are attempted at most once
+ * per reconnect backoff. When the channel is unusable calls fail with UserRpcException.Unavailable (the
+ * caller may fall back to REST); a lookup that was sent but not answered in time fails with a plain
+ * UserRpcException, like a REST read timeout.
+ */
+public class UserRpcClient {
+
+	private static final Logger log = LoggerFactory.getLogger(UserRpcClient.class);
+
+	private final String host;
+	private final int port;
+	private final int connectTimeoutMs;
+	private final long requestTimeoutMs;
+	private final long reconnectBackoffMs;
+
+	private final ReentrantLock connectLock = new ReentrantLock();
+	private final AtomicReference<Connection> connection = new AtomicReference<>();
+	private final AtomicInteger requestIds = new AtomicInteger();
+
+	private volatile boolean closed;
+	private volatile long nextConnectAttemptAt;
+
+	public UserRpcClient(String host, int port, long connectTimeoutMs, long requestTimeoutMs, long reconnectBackoffMs) {
+		this.host = host;
+		this.port = port;
+		this.connectTimeoutMs = (int) connectTimeoutMs;
+		this.requestTimeoutMs = requestTimeoutMs;
+		this.reconnectBackoffMs = reconnectBackoffMs;
+	}
+
+	// The user, or empty when the server answered NOT_FOUND.
+	public Optional<UserRecord> getUser(String userId) {
+		Connection conn = connection();
+		int requestId = requestIds.incrementAndGet();
+		CompletableFuture<byte[]> reply = new CompletableFuture<>();
+		conn.pending.put(requestId, reply);
+		if (conn.failed) {
+			conn.pending.remove(requestId);
+			throw new UserRpcException.Unavailable("User Service RPC connection lost", null);
+		}
+		try {
+			conn.send(encodeGetUser(requestId, userId));
+		} catch (IOException e) {
+			conn.pending.remove(requestId);
+			conn.fail(e);
+			throw new UserRpcException.Unavailable("User Service RPC send failed", e);
+		}
+
+		byte[] frame;
+		try {
+			frame = reply.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			conn.pending.remove(requestId);
+			throw new UserRpcException("User Service RPC timed out after " + requestTimeoutMs + "ms");
+		} catch (ExecutionException e) {
+			throw new UserRpcException.Unavailable("User Service RPC connection lost", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			conn.pending.remove(requestId);
+			throw new UserRpcException("Interrupted while calling User Service", e);
+		}
+		return decodeUser(frame);
+	}
+
+	private Connection connection() {
+		Connection current = connection.get();
+		if (current != null) {
+			return current;
+		}
+		if (closed) {
+			throw new UserRpcException.Unavailable("User Service RPC client closed", null);
+		}
+		connectLock.lock();
+		try {
+			current = connection.get();
+			if (current != null) {
+				return current;
+			}
+			if (System.currentTimeMillis() < nextConnectAttemptAt) {
+				throw new UserRpcException.Unavailable("User Service RPC not connected", null);
+			}
+			Socket socket = new Socket();
+			try {
+				socket.setTcpNoDelay(true);
+				socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+				current = new Connection(socket);
+			} catch (IOException e) {
+				closeQuietly(socket);
+				nextConnectAttemptAt = System.currentTimeMillis() + reconnectBackoffMs;
+				log.warn("UserRpcClient: could not connect to {}:{}: {}", host, port, e.getMessage());
+				throw new UserRpcException.Unavailable("Could not connect to User Service RPC", e);
+			}
+			connection.set(current);
+			log.info("UserRpcClient: connected to {}:{}", host, port);
+			return current;
+		} finally {
+			connectLock.unlock();
+		}
+	}
+
+	private static ByteArrayOutputStream encodeGetUser(int requestId, String userId) throws IOException {
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(frame);
+		out.writeInt(requestId);
+		out.writeByte(UserRpcProtocol.OP_GET_USER);
+		UserRpcProtocol.writeString(out, userId);
+		return frame;
+	}
+
+	private static Optional<UserRecord> decodeUser(byte[] frame) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+			in.readInt();
+			byte status = in.readByte();
+			return switch (status) {
+				case UserRpcProtocol.STATUS_OK -> Optional.of(new UserRecord(
+						UserRpcProtocol.readString(in),
+						UserRpcProtocol.readString(in),
+						UserRpcProtocol.readString(in),
+						UserRpcProtocol.readString(in),
+						UserRpcProtocol.readString(in)));
+				case UserRpcProtocol.STATUS_NOT_FOUND -> Optional.empty();
+				case UserRpcProtocol.STATUS_ERROR -> throw new UserRpcException("User service error: " + UserRpcProtocol.readString(in));
+				default -> throw new IOException("Unknown response status " + status);
+			};
+		} catch (IOException e) {
+			throw new UserRpcException.Unavailable("Malformed User Service RPC response", e);
+		}
+	}
+
+	public void close() {
+		closed = true;
+		Connection current = connection.get();
+		if (current != null) {
+			current.fail(new IOException("User Service RPC client closed"));
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private final class Connection {
+
+		private final Socket socket;
+		private final DataOutputStream out;
+		private final ReentrantLock writeLock = new ReentrantLock();
+		private final Map<Integer, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+		private volatile boolean failed;
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			Thread.ofPlatform().name("user-rpc-reader").daemon(true).start(() -> readLoop(in));
+		}
+
+		void send(ByteArrayOutputStream frame) throws IOException {
+			writeLock.lock();
+			try {
+				UserRpcProtocol.writeFrame(out, frame);
+				out.flush();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		private void readLoop(DataInputStream in) {
+			try {
+				while (true) {
+					byte[] frame = UserRpcProtocol.readFrame(in);
+					CompletableFuture<byte[]> reply = pending.remove(ByteBuffer.wrap(frame).getInt());
+					if (reply != null) {
+						reply.complete(frame);
+					}
+				}
+			} catch (IOException e) {
+				fail(e);
+			} catch (RuntimeException e) {
+				// Never let the reader die silently: a connection nobody reads from would time out every lookup.
+				fail(new IOException("Unreadable User Service RPC response", e));
+			}
+		}
+
+		// Retire this connection: the next lookup reconnects, lookups waiting on this one fail over to REST.
+		void fail(IOException cause) {
+			if (failed) {
+				return;
+			}
+			failed = true;
+			connection.compareAndSet(this, null);
+			closeQuietly(socket);
+			if (!closed) {
+				log.warn("UserRpcClient: connection to {}:{} lost: {}", host, port, cause.getMessage());
+			}
+			pending.values().forEach(reply -> reply.completeExceptionally(cause));
+			pending.clear();
+		}
+	}
+}
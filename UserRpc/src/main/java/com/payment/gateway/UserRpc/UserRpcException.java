@@ -0,0 +1,23 @@
+package com.payment.gateway.UserRpc;
+
+/**
+ * A lookup was sent but not answered successfully (timeout, server-side error, interrupt); like a failed
+ * REST call, it is not retried elsewhere.
+ */
+public class UserRpcException extends RuntimeException {
+
+	public UserRpcException(String message) {
+		super(message);
+	}
+
+	public UserRpcException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	/** The RPC channel itself is unavailable; the lookup was not answered and may be retried over REST. */
+	public static final class Unavailable extends UserRpcException {
+		public Unavailable(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
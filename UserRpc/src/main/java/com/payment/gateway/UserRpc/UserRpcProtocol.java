@@ -0,0 +1,75 @@
+package com.payment.gateway.UserRpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the internal user lookup RPC, shared by UserRpcServer and UserRpcClient.
+ *
+ * Every frame is an int length followed by that many bytes. All integers are big-endian.
+ *   request:  int requestId | byte opcode (GET_USER) | string userId
+ *   response: int requestId | byte status | OK: string userId, email, name, phone, kycStatus
+ *                                          | NOT_FOUND: nothing | ERROR: string message
+ * A string is a short byte length (-1 for null) followed by UTF-8 bytes.
+ *
+ * requestId is chosen by the client and echoed back, so one connection carries many lookups at once and
+ * responses may arrive in any order.
+ */
+public final class UserRpcProtocol {
+
+	public static final byte OP_GET_USER = 1;
+
+	public static final byte STATUS_OK = 0;
+	public static final byte STATUS_NOT_FOUND = 1;
+	public static final byte STATUS_ERROR = 2;
+
+	// requestId plus opcode/status: the smallest frame either side can send.
+	public static final int MIN_FRAME_BYTES = 5;
+	public static final int MAX_FRAME_BYTES = 64 * 1024;
+
+	private UserRpcProtocol() {
+	}
+
+	// Reads one frame body (without its length prefix); fails on a length outside [MIN_FRAME_BYTES, MAX_FRAME_BYTES].
+	public static byte[] readFrame(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < MIN_FRAME_BYTES || length > MAX_FRAME_BYTES) {
+			throw new IOException("Invalid frame length " + length);
+		}
+		byte[] frame = new byte[length];
+		in.readFully(frame);
+		return frame;
+	}
+
+	// Length-prefixes the frame; the caller holds the connection's write lock and flushes.
+	public static void writeFrame(DataOutputStream out, ByteArrayOutputStream frame) throws IOException {
+		out.writeInt(frame.size());
+		frame.writeTo(out);
+	}
+
+	public static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeShort(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > Short.MAX_VALUE) {
+			throw new IOException("String too long for frame: " + bytes.length + " bytes");
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInputStream in) throws IOException {
+		short length = in.readShort();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,177 @@
+package com.payment.gateway.UserRpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server side of the binary user lookup RPC; the lookup itself is supplied by the caller (UserService).
+ *
+ * Connections are long-lived. Each has a reader that decodes request frames (see UserRpcProtocol) and hands
+ * every lookup to its own virtual thread, so slow lookups do not hold up others on the same connection;
+ * responses are written back under a per-connection lock, in completion order, tagged with the request id.
+ */
+public class UserRpcServer {
+
+	private static final Logger log = LoggerFactory.getLogger(UserRpcServer.class);
+
+	/** Returns the user, or null if there is none; any exception is answered with STATUS_ERROR. */
+	@FunctionalInterface
+	public interface UserLookup {
+		UserRecord find(String userId);
+	}
+
+	private final UserLookup lookup;
+	private final int port;
+	private final ExecutorService workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("user-rpc-", 0).factory());
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean running;
+	private ServerSocket serverSocket;
+
+	public UserRpcServer(int port, UserLookup lookup) {
+		this.port = port;
+		this.lookup = lookup;
+	}
+
+	public void start() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(port));
+		running = true;
+		Thread.ofPlatform().name("user-rpc-accept").daemon(true).start(this::acceptLoop);
+		log.info("UserRpcServer: listening on port {}", serverSocket.getLocalPort());
+	}
+
+	// Actual bound port (differs from the configured port when that is 0).
+	public int port() {
+		return serverSocket != null ? serverSocket.getLocalPort() : -1;
+	}
+
+	private void acceptLoop() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				Thread.ofVirtual().name("user-rpc-conn").start(() -> serve(socket));
+			} catch (IOException e) {
+				if (running) {
+					log.warn("UserRpcServer: accept failed: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		ReentrantLock writeLock = new ReentrantLock();
+		try (socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (running) {
+				byte[] frame = UserRpcProtocol.readFrame(in);
+				workers.execute(() -> handle(frame, out, writeLock, socket));
+			}
+		} catch (RejectedExecutionException e) {
+			log.debug("UserRpcServer: stopping, closing connection from {}", socket.getRemoteSocketAddress());
+		} catch (EOFException | SocketException e) {
+			log.debug("UserRpcServer: connection from {} closed", socket.getRemoteSocketAddress());
+		} catch (IOException e) {
+			log.warn("UserRpcServer: dropping connection from {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+		} finally {
+			connections.remove(socket);
+		}
+	}
+
+	private void handle(byte[] frame, DataOutputStream out, ReentrantLock writeLock, Socket socket) {
+		int requestId = -1;
+		ByteArrayOutputStream response = new ByteArrayOutputStream(128);
+		try {
+			DataInputStream request = new DataInputStream(new ByteArrayInputStream(frame));
+			requestId = request.readInt();
+			byte opcode = request.readByte();
+			if (opcode != UserRpcProtocol.OP_GET_USER) {
+				throw new IOException("Unknown opcode " + opcode);
+			}
+			encodeLookup(requestId, UserRpcProtocol.readString(request), new DataOutputStream(response));
+		} catch (IOException e) {
+			log.warn("UserRpcServer: bad request frame: {}", e.getMessage());
+			closeQuietly(socket);
+			return;
+		}
+
+		writeLock.lock();
+		try {
+			UserRpcProtocol.writeFrame(out, response);
+			out.flush();
+		} catch (IOException e) {
+			log.debug("UserRpcServer: could not answer request {}: {}", requestId, e.getMessage());
+			closeQuietly(socket);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void encodeLookup(int requestId, String userId, DataOutputStream response) throws IOException {
+		response.writeInt(requestId);
+		UserRecord user;
+		try {
+			user = lookup.find(userId);
+		} catch (RuntimeException e) {
+			log.error("UserRpcServer: lookup of {} failed: {}", userId, e.getMessage(), e);
+			response.writeByte(UserRpcProtocol.STATUS_ERROR);
+			UserRpcProtocol.writeString(response, "Lookup failed");
+			return;
+		}
+		if (user == null) {
+			response.writeByte(UserRpcProtocol.STATUS_NOT_FOUND);
+			return;
+		}
+		response.writeByte(UserRpcProtocol.STATUS_OK);
+		UserRpcProtocol.writeString(response, user.userId());
+		UserRpcProtocol.writeString(response, user.email());
+		UserRpcProtocol.writeString(response, user.name());
+		UserRpcProtocol.writeString(response, user.phone());
+		UserRpcProtocol.writeString(response, user.kycStatus());
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	// Closes the listening socket and every open connection; clients see their connection drop.
+	public void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException ignored) {
+		}
+		connections.forEach(UserRpcServer::closeQuietly);
+		workers.shutdownNow();
+		log.info("UserRpcServer: stopped");
+	}
+}
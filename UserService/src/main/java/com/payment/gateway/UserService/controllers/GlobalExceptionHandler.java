@@ -4,6 +4,7 @@ import com.payment.gateway.UserService.exception.DuplicateEmailException;
 import com.payment.gateway.UserService.exception.UserNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -46,6 +47,13 @@ public class GlobalExceptionHandler {
 				.body(new ErrorResponse("duplicate_email", ex.getMessage()));
 	}
 
+	// Two concurrent updates of the same user: the one that lost the version check can simply be retried.
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorResponse> handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+		return ResponseEntity.status(HttpStatus.CONFLICT)
+				.body(new ErrorResponse("concurrent_update", "The user was modified concurrently, retry the request"));
+	}
+
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<ErrorResponse> handleGeneric(Exception ex) {
 		log.error("Unhandled exception: {}", ex.getMessage(), ex);
@@ -1,41 +1,76 @@
 package com.payment.gateway.UserService.controllers;
 
+import com.payment.gateway.UserService.dto.BatchGetUsersRequest;
+import com.payment.gateway.UserService.dto.BatchGetUsersResponse;
 import com.payment.gateway.UserService.dto.CreateUserRequest;
 import com.payment.gateway.UserService.dto.UpdateUserRequest;
 import com.payment.gateway.UserService.dto.UserResponse;
+import com.payment.gateway.UserService.dto.VersionedUser;
+import com.payment.gateway.UserService.services.UserImportService;
 import com.payment.gateway.UserService.services.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
 
 @RestController
-@RequestMapping("/api/v1/users")
+@RequestMapping("/api/v1")
 @Validated
 public class UserController {
 
+	private static final String NDJSON = "application/x-ndjson";
+
 	private final UserService userService;
+	private final UserImportService userImportService;
 
-	public UserController(UserService userService) {
+	public UserController(UserService userService, UserImportService userImportService) {
 		this.userService = userService;
+		this.userImportService = userImportService;
 	}
 
-	@PostMapping
+	@PostMapping("/users")
 	public ResponseEntity<UserResponse> create(@Valid @RequestBody CreateUserRequest request) {
 		UserResponse response = userService.create(request);
 		return ResponseEntity.status(HttpStatus.CREATED).body(response);
 	}
 
-	@GetMapping("/{userId}")
-	public ResponseEntity<UserResponse> getById(@PathVariable("userId") String userId) {
-		return ResponseEntity.ok(userService.getByUserId(userId));
+	// ETag is the user's version (incremented on every update). A matching If-None-Match is answered 304 from a
+	// version-only query, without loading or sending the user.
+	@GetMapping("/users/{userId}")
+	public ResponseEntity<UserResponse> getById(@PathVariable("userId") String userId, WebRequest request) {
+		if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && request.checkNotModified(userService.getVersion(userId))) {
+			return null;
+		}
+		VersionedUser user = userService.getVersionedByUserId(userId);
+		return ResponseEntity.ok().eTag(user.version()).body(user.user());
 	}
 
-	@PatchMapping("/{userId}")
+	@PatchMapping("/users/{userId}")
 	public ResponseEntity<UserResponse> update(
 			@PathVariable("userId") String userId,
 			@Valid @RequestBody UpdateUserRequest request) {
 		return ResponseEntity.ok(userService.update(userId, request));
 	}
+
+	// Look up many users with one query; ids that do not exist are listed in notFound.
+	@PostMapping("/users:batchGet")
+	public ResponseEntity<BatchGetUsersResponse> batchGet(@Valid @RequestBody BatchGetUsersRequest request) {
+		return ResponseEntity.ok(userService.batchGet(request.userIds()));
+	}
+
+	// Bulk create from NDJSON (one CreateUserRequest per line), streamed both ways: the response carries one
+	// result line per input line, written as each chunk commits.
+	@PostMapping(value = "/users:import", consumes = NDJSON, produces = NDJSON)
+	public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(NDJSON);
+		userImportService.importUsers(request.getInputStream(), response.getOutputStream());
+	}
 }
@@ -0,0 +1,10 @@
+package com.payment.gateway.UserService.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchGetUsersRequest(
+		@NotEmpty @Size(max = 500) List<String> userIds
+) {}
@@ -0,0 +1,9 @@
+package com.payment.gateway.UserService.dto;
+
+import java.util.List;
+
+// Users found for a batchGet, plus the requested ids that do not exist (instead of one 404 per id).
+public record BatchGetUsersResponse(
+		List<UserResponse> users,
+		List<String> notFound
+) {}
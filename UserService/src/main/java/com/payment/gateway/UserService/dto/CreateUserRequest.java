@@ -2,9 +2,11 @@ package com.payment.gateway.UserService.dto;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 
+// Sizes match the varchar(255) columns of users, so oversized values are rejected per request (or import row).
 public record CreateUserRequest(
-		@NotBlank @Email String email,
-		@NotBlank String name,
-		String phone
+		@NotBlank @Email @Size(max = 255) String email,
+		@NotBlank @Size(max = 255) String name,
+		@Size(max = 255) String phone
 ) {}
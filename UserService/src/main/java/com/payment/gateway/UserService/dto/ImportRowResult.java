@@ -0,0 +1,13 @@
+package com.payment.gateway.UserService.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the users:import response stream. status: CREATED, DUPLICATE_EMAIL, INVALID or FAILED.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportRowResult(
+		long line,
+		String status,
+		String userId,
+		String email,
+		String error
+) {}
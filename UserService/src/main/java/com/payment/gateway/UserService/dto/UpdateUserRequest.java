@@ -2,10 +2,11 @@ package com.payment.gateway.UserService.dto;
 
 import com.payment.gateway.UserService.models.KycStatus;
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
 
 public record UpdateUserRequest(
-		@Email String email,
-		String name,
-		String phone,
+		@Email @Size(max = 255) String email,
+		@Size(max = 255) String name,
+		@Size(max = 255) String phone,
 		KycStatus kycStatus
 ) {}
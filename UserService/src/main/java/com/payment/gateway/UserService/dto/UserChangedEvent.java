@@ -0,0 +1,16 @@
+package com.payment.gateway.UserService.dto;
+
+import com.payment.gateway.UserService.models.KycStatus;
+
+import java.time.Instant;
+
+// Payload of user-events. version is the user's ETag version, a counter incremented by every change;
+// consumers keep the highest one they have seen.
+public record UserChangedEvent(
+		String eventType,
+		String userId,
+		KycStatus kycStatus,
+		String email,
+		String version,
+		Instant occurredAt
+) {}
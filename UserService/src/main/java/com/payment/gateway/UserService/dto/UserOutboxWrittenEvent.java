@@ -0,0 +1,9 @@
+package com.payment.gateway.UserService.dto;
+
+/**
+ * In-process signal that a user_outbox row was written in the current transaction.
+ * Delivered to listeners after commit so the relay can publish without waiting for its next poll.
+ */
+public record UserOutboxWrittenEvent(
+		String userId
+) {}
@@ -0,0 +1,7 @@
+package com.payment.gateway.UserService.dto;
+
+// A user together with its version, the value of its ETag.
+public record VersionedUser(
+		UserResponse user,
+		String version
+) {}
@@ -2,6 +2,7 @@ package com.payment.gateway.UserService.models;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -37,4 +38,11 @@ public class UserEntity {
 
 	@UpdateTimestamp
 	private LocalDateTime updatedAt;
+
+	// Incremented by Hibernate on every update: the ETag and the version of user-events, ordered even
+	// across instances and clock steps. The default covers rows that existed before the column.
+	@Version
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private long version;
 }
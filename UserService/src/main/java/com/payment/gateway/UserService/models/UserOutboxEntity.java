@@ -0,0 +1,42 @@
+package com.payment.gateway.UserService.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// A user change event waiting to be published to Kafka; written in the same transaction as the change.
+@Entity
+@Table(name = "user_outbox", indexes = @Index(name = "idx_user_outbox_pending", columnList = "processed, id"))
+@Data
+public class UserOutboxEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+	@SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 50)
+	private Long id;
+
+	private String aggregateId; // The userId
+
+	private String eventType;   // USER_CREATED or USER_UPDATED
+
+	@Column(columnDefinition = "TEXT")
+	private String payload;     // UserChangedEvent as JSON
+
+	@CreationTimestamp
+	private LocalDateTime createdAt;
+
+	private boolean processed = false;
+
+	private LocalDateTime processedAt;
+
+	private int attempts = 0;
+
+	private String lastError;
+
+	// Claim/lease: the relay instance currently publishing this row and when its claim lapses.
+	private String lockedBy;
+
+	private LocalDateTime lockedUntil;
+}
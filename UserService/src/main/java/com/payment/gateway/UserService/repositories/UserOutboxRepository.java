@@ -0,0 +1,59 @@
+package com.payment.gateway.UserService.repositories;
+
+import com.payment.gateway.UserService.models.UserOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserOutboxRepository extends JpaRepository<UserOutboxEntity, Long> {
+
+	// Row-lock a bounded batch of pending rows whose lease is free or expired, oldest first.
+	// SKIP LOCKED makes concurrent relays take disjoint batches instead of waiting on each other.
+	@Query(value = """
+			SELECT o.id FROM user_outbox o
+			WHERE o.processed = false
+			  AND (o.locked_until IS NULL OR o.locked_until < :now)
+			ORDER BY o.id
+			LIMIT :limit
+			FOR UPDATE SKIP LOCKED
+			""", nativeQuery = true)
+	List<Long> lockClaimableIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+	// Stamp the lease on rows locked by lockClaimableIds (same transaction).
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE UserOutboxEntity o SET o.lockedBy = :owner, o.lockedUntil = :until WHERE o.id IN :ids")
+	int lease(@Param("ids") Collection<Long> ids,
+			@Param("owner") String owner,
+			@Param("until") LocalDateTime until);
+
+	@Modifying(clearAutomatically = true)
+	@Query("""
+			UPDATE UserOutboxEntity o
+			SET o.processed = true, o.processedAt = :now, o.attempts = o.attempts + 1,
+			    o.lastError = null, o.lockedBy = null, o.lockedUntil = null
+			WHERE o.id IN :ids
+			""")
+	int markPublished(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+	// Release the lease of rows this relay still owns; they are retried on the next drain.
+	@Modifying(clearAutomatically = true)
+	@Query("""
+			UPDATE UserOutboxEntity o
+			SET o.attempts = o.attempts + 1, o.lastError = :error, o.lockedBy = null, o.lockedUntil = null
+			WHERE o.id IN :ids AND o.lockedBy = :owner
+			""")
+	int markFailed(@Param("ids") Collection<Long> ids,
+			@Param("owner") String owner,
+			@Param("error") String error);
+
+	long countByProcessedFalse();
+
+	@Query("select min(o.createdAt) from UserOutboxEntity o where o.processed = false")
+	Optional<LocalDateTime> findOldestPendingCreatedAt();
+}
@@ -2,12 +2,27 @@ package com.payment.gateway.UserService.repositories;
 
 import com.payment.gateway.UserService.models.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
 	Optional<UserEntity> findByUserId(String userId);
 
+	// One IN query for batchGet, served by the unique index on user_id.
+	List<UserEntity> findByUserIdIn(Collection<String> userIds);
+
+	// Version-only lookup for conditional GETs: one number instead of the whole row.
+	@Query("select u.version from UserEntity u where u.userId = :userId")
+	Optional<Long> findVersionByUserId(@Param("userId") String userId);
+
 	boolean existsByEmail(String email);
+
+	// Set-based uniqueness check for bulk import: which of these emails are already taken.
+	@Query("select u.email from UserEntity u where u.email in :emails")
+	List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,62 @@
+package com.payment.gateway.UserService.rpc;
+
+import com.payment.gateway.UserRpc.UserRecord;
+import com.payment.gateway.UserRpc.UserRpcServer;
+import com.payment.gateway.UserService.dto.UserResponse;
+import com.payment.gateway.UserService.exception.UserNotFoundException;
+import com.payment.gateway.UserService.services.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Binary user lookup endpoint for internal callers (user.rpc.enabled), next to the REST API.
+ *
+ * Runs the shared UserRpcServer (userrpc module); lookups go through UserService.getByUserId, the same code
+ * path as GET /api/v1/users/{userId}.
+ */
+@Component
+public class UserRpcEndpoint {
+
+	private final UserService userService;
+	private final boolean enabled;
+	private final UserRpcServer server;
+
+	public UserRpcEndpoint(UserService userService,
+			@Value("${user.rpc.enabled:false}") boolean enabled,
+			@Value("${user.rpc.port:9082}") int port) {
+		this.userService = userService;
+		this.enabled = enabled;
+		this.server = new UserRpcServer(port, this::lookup);
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (enabled) {
+			server.start();
+		}
+	}
+
+	// Actual bound port (differs from user.rpc.port when that is 0).
+	public int port() {
+		return server.port();
+	}
+
+	private UserRecord lookup(String userId) {
+		try {
+			UserResponse user = userService.getByUserId(userId);
+			return new UserRecord(user.userId(), user.email(), user.name(), user.phone(),
+					user.kycStatus() != null ? user.kycStatus().name() : null);
+		} catch (UserNotFoundException e) {
+			return null;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		server.stop();
+	}
+}
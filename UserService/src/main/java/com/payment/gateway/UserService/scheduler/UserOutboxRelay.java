@@ -0,0 +1,210 @@
+package com.payment.gateway.UserService.scheduler;
+
+import com.payment.gateway.UserService.dto.UserOutboxWrittenEvent;
+import com.payment.gateway.UserService.models.UserOutboxEntity;
+import com.payment.gateway.UserService.services.UserOutboxService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes user_outbox rows to the user-events topic (user.outbox.relay.enabled), modelled on
+ * TransactionService's OutboxRelay.
+ *
+ * Drains run on one thread, woken after each committing user change and by a safety-net poll. Each batch is
+ * claimed in a short transaction, every send of the batch is handed to the producer before any ack is awaited
+ * (so the producer groups them into few requests), and the outcome is written back with one UPDATE for the
+ * successes and one per distinct error. Events are keyed by userId, so one user's events stay in order on
+ * their partition; consumers still compare versions and keep the highest.
+ *
+ * Metrics: user.outbox.publish.lag (row creation to Kafka ack), user.outbox.batch.size,
+ * user.outbox.pending and user.outbox.oldest.age.seconds (refreshed every stats-interval-ms).
+ */
+@Component
+public class UserOutboxRelay {
+
+	private static final Logger log = LoggerFactory.getLogger(UserOutboxRelay.class);
+
+	private final UserOutboxService outboxService;
+	private final KafkaTemplate<String, String> kafkaTemplate;
+	private final boolean enabled;
+	private final String topic;
+	private final String instanceId;
+	private final int batchSize;
+	private final Duration lease;
+	private final long sendTimeoutMs;
+
+	private final Timer publishLag;
+	private final DistributionSummary batchSizes;
+	private final AtomicLong pendingRows = new AtomicLong();
+	private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+
+	private final ExecutorService drainExecutor;
+	private final AtomicBoolean drainPending = new AtomicBoolean(false);
+
+	public UserOutboxRelay(UserOutboxService outboxService,
+			KafkaTemplate<String, String> kafkaTemplate,
+			MeterRegistry meterRegistry,
+			@Value("${user.outbox.relay.enabled:true}") boolean enabled,
+			@Value("${user.outbox.topic:user-events}") String topic,
+			@Value("${user.outbox.relay.batch-size:200}") int batchSize,
+			@Value("${user.outbox.relay.lease-seconds:30}") long leaseSeconds,
+			@Value("${user.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		this.outboxService = outboxService;
+		this.kafkaTemplate = kafkaTemplate;
+		this.enabled = enabled;
+		this.topic = topic;
+		this.instanceId = System.getenv().getOrDefault("HOSTNAME", "user-relay") + "-" + UUID.randomUUID().toString().substring(0, 8);
+		this.batchSize = batchSize;
+		this.lease = Duration.ofSeconds(leaseSeconds);
+		this.sendTimeoutMs = sendTimeoutMs;
+		this.drainExecutor = Executors.newSingleThreadExecutor(virtualThreads
+				? Thread.ofVirtual().name("user-outbox-relay").factory()
+				: Thread.ofPlatform().name("user-outbox-relay").daemon(true).factory());
+
+		this.publishLag = Timer.builder("user.outbox.publish.lag")
+				.description("Time from user_outbox row creation to Kafka acknowledgement")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		this.batchSizes = DistributionSummary.builder("user.outbox.batch.size")
+				.description("User events claimed per relay batch")
+				.register(meterRegistry);
+		Gauge.builder("user.outbox.pending", pendingRows, AtomicLong::get)
+				.description("Unpublished user_outbox rows")
+				.register(meterRegistry);
+		Gauge.builder("user.outbox.oldest.age.seconds", oldestPendingAgeSeconds, AtomicLong::get)
+				.description("Age of the oldest unpublished user event")
+				.register(meterRegistry);
+	}
+
+	// Safety-net poll: picks up rows committed by other instances or missed while the broker was down.
+	@Scheduled(fixedDelayString = "${user.outbox.relay.poll-interval-ms:30000}")
+	public void publishEvents() {
+		requestDrain();
+	}
+
+	// Push wakeup: runs after the user transaction commits, so the row is already visible to the claim query.
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onOutboxWritten(UserOutboxWrittenEvent event) {
+		requestDrain();
+	}
+
+	@Scheduled(fixedDelayString = "${user.outbox.stats-interval-ms:15000}")
+	public void refreshStats() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			pendingRows.set(outboxService.pendingRows());
+			oldestPendingAgeSeconds.set(outboxService.oldestPendingAge().toSeconds());
+		} catch (Exception e) {
+			log.warn("UserOutboxRelay: could not refresh outbox stats: {}", e.getMessage());
+		}
+	}
+
+	// Coalesces wakeups: at most one drain queued behind the running one.
+	public void requestDrain() {
+		if (enabled && drainPending.compareAndSet(false, true)) {
+			drainExecutor.execute(this::drain);
+		}
+	}
+
+	// Full batches are followed by another; stops at the first batch with failures so a broker outage is not hammered.
+	private void drain() {
+		drainPending.set(false);
+		try {
+			BatchResult result;
+			do {
+				result = publishBatch();
+			} while (result.claimed() == batchSize && result.failed() == 0);
+		} catch (Exception e) {
+			log.error("UserOutboxRelay: Drain failed: {}", e.getMessage(), e);
+		}
+	}
+
+	private BatchResult publishBatch() {
+		List<UserOutboxEntity> batch = outboxService.claimBatch(instanceId, batchSize, lease);
+		if (batch.isEmpty()) {
+			return new BatchResult(0, 0);
+		}
+		batchSizes.record(batch.size());
+
+		List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+		for (UserOutboxEntity event : batch) {
+			futures.add(kafkaTemplate.send(topic, event.getAggregateId(), event.getPayload()));
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+		List<Long> published = new ArrayList<>(batch.size());
+		Map<String, List<Long>> failedByError = new LinkedHashMap<>();
+		for (int i = 0; i < batch.size(); i++) {
+			UserOutboxEntity event = batch.get(i);
+			try {
+				futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				published.add(event.getId());
+				if (event.getCreatedAt() != null) {
+					publishLag.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+				}
+			} catch (TimeoutException e) {
+				failedByError.computeIfAbsent("timeout: no ack within " + sendTimeoutMs + "ms", k -> new ArrayList<>()).add(event.getId());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				failedByError.computeIfAbsent(String.valueOf(cause.getMessage()), k -> new ArrayList<>()).add(event.getId());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failedByError.computeIfAbsent("interrupted", k -> new ArrayList<>()).add(event.getId());
+			}
+		}
+
+		try {
+			outboxService.markPublished(published);
+			failedByError.forEach((error, ids) -> outboxService.markFailed(ids, instanceId, error));
+		} catch (Exception e) {
+			// Rows stay leased until the lease expires and are then re-published; consumers dedupe on version.
+			log.error("UserOutboxRelay: Failed to record publish results for {} rows: {}", batch.size(), e.getMessage());
+		}
+
+		int failed = batch.size() - published.size();
+		if (failed > 0) {
+			log.warn("UserOutboxRelay: Published {}/{} user events, errors: {}", published.size(), batch.size(), failedByError.keySet());
+		} else {
+			log.debug("UserOutboxRelay: Published {} user events", published.size());
+		}
+		return new BatchResult(batch.size(), failed);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		drainExecutor.shutdown();
+	}
+
+	private record BatchResult(int claimed, int failed) {}
+}
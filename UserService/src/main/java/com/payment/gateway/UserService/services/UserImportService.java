@@ -0,0 +1,288 @@
+package com.payment.gateway.UserService.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.gateway.UserService.dto.CreateUserRequest;
+import com.payment.gateway.UserService.dto.ImportRowResult;
+import com.payment.gateway.UserService.dto.UserChangedEvent;
+import com.payment.gateway.UserService.models.KycStatus;
+import com.payment.gateway.UserService.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import (POST /api/v1/users:import): NDJSON in, one NDJSON result per input line out.
+ *
+ * Input is read line by line and processed in chunks of chunk-size rows, so heap use depends on the chunk
+ * size, not on the file. Per chunk, in one transaction: a single IN query finds emails that are already
+ * taken, new users are inserted with one JDBC batch (rewritten into multi-row INSERTs by the driver) and
+ * their USER_CREATED events go to the outbox in one batch too. Results are written and flushed after each
+ * chunk commits. If a concurrent create takes an email between the check and the insert, the unique index
+ * rejects the batch and the chunk is re-checked and retried. Any other constraint failure (or a race that
+ * persists) falls back to inserting the chunk's rows one by one, so only the offending rows fail.
+ *
+ * Metrics: user.import.rows{result} (its rate is rows/sec), user.import.chunk (latency),
+ * user.import.active (imports running); progress is also logged every PROGRESS_LOG_EVERY rows.
+ */
+@Service
+public class UserImportService {
+
+	private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+	private static final String INSERT_USER = """
+			INSERT INTO users (user_id, email, name, phone, kyc_status, created_at, updated_at, version)
+			VALUES (?, ?, ?, ?, ?, ?, ?, 0)
+			""";
+	private static final int MAX_CHUNK_ATTEMPTS = 3;
+	private static final long PROGRESS_LOG_EVERY = 10_000;
+
+	private static final String CREATED = "CREATED";
+	private static final String DUPLICATE_EMAIL = "DUPLICATE_EMAIL";
+	private static final String INVALID = "INVALID";
+	private static final String FAILED = "FAILED";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final UserRepository userRepository;
+	private final UserOutboxService outboxService;
+	private final ObjectMapper objectMapper;
+	private final Validator validator;
+	private final int chunkSize;
+
+	private final MeterRegistry meterRegistry;
+	private final Timer chunkTimer;
+	private final AtomicInteger activeImports = new AtomicInteger();
+
+	public UserImportService(JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate,
+			UserRepository userRepository,
+			UserOutboxService outboxService,
+			ObjectMapper objectMapper,
+			Validator validator,
+			MeterRegistry meterRegistry,
+			@Value("${user.import.chunk-size:500}") int chunkSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.userRepository = userRepository;
+		this.outboxService = outboxService;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.chunkSize = chunkSize;
+		this.meterRegistry = meterRegistry;
+		this.chunkTimer = Timer.builder("user.import.chunk")
+				.description("Time to check and insert one chunk of imported users")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		meterRegistry.gauge("user.import.active", activeImports);
+	}
+
+	public ImportSummary importUsers(InputStream input, OutputStream output) throws IOException {
+		activeImports.incrementAndGet();
+		long start = System.nanoTime();
+		ImportProgress progress = new ImportProgress();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+			BufferedOutputStream out = new BufferedOutputStream(output);
+			List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+			long lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank()) {
+					continue;
+				}
+				chunk.add(parse(lineNumber, line));
+				if (chunk.size() == chunkSize) {
+					writeResults(importChunk(chunk), out, progress, start);
+					chunk.clear();
+				}
+			}
+			if (!chunk.isEmpty()) {
+				writeResults(importChunk(chunk), out, progress, start);
+			}
+			out.flush();
+		} finally {
+			activeImports.decrementAndGet();
+		}
+		ImportSummary summary = progress.summary();
+		log.info("UserImportService: import finished: {} rows ({} created, {} duplicate, {} invalid, {} failed) at {} rows/s",
+				summary.rows(), summary.created(), summary.duplicates(), summary.invalid(), summary.failed(), rate(summary.rows(), start));
+		return summary;
+	}
+
+	private ParsedRow parse(long lineNumber, String line) {
+		CreateUserRequest request;
+		try {
+			request = objectMapper.readValue(line, CreateUserRequest.class);
+		} catch (JsonProcessingException e) {
+			return new ParsedRow(lineNumber, null, "malformed JSON: " + e.getOriginalMessage());
+		}
+		// A bare `null` line parses to null rather than failing; it is still not a user.
+		if (request == null) {
+			return new ParsedRow(lineNumber, null, "expected a JSON object");
+		}
+		Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(request);
+		if (!violations.isEmpty()) {
+			String error = violations.stream()
+					.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+					.sorted()
+					.collect(Collectors.joining(", "));
+			return new ParsedRow(lineNumber, request, error);
+		}
+		return new ParsedRow(lineNumber, request, null);
+	}
+
+	// One transaction per chunk; a unique-index race with a concurrent create re-runs the chunk's email check.
+	private List<ImportRowResult> importChunk(List<ParsedRow> rows) {
+		for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+			try {
+				return chunkTimer.record(() -> transactionTemplate.execute(status -> insertChunk(rows)));
+			} catch (DataIntegrityViolationException e) {
+				if (!isEmailConflict(e)) {
+					log.warn("UserImportService: chunk at line {} rejected, inserting its rows one by one: {}", rows.get(0).line(), e.getMessage());
+					break;
+				}
+			}
+		}
+		return insertRowByRow(rows);
+	}
+
+	// Fallback: one transaction per row, so a row the database rejects fails alone.
+	private List<ImportRowResult> insertRowByRow(List<ParsedRow> rows) {
+		List<ImportRowResult> results = new ArrayList<>(rows.size());
+		for (ParsedRow row : rows) {
+			try {
+				results.addAll(transactionTemplate.execute(status -> insertChunk(List.of(row))));
+			} catch (DataIntegrityViolationException e) {
+				String email = row.request().email();
+				results.add(isEmailConflict(e)
+						? new ImportRowResult(row.line(), DUPLICATE_EMAIL, null, email, null)
+						: new ImportRowResult(row.line(), FAILED, null, email, NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+			}
+		}
+		return results;
+	}
+
+	// The users unique index on email; its name is generated by Hibernate, so match the column in the message
+	// (Postgres: "Key (email)=(...) already exists", H2 names the indexed column).
+	private static boolean isEmailConflict(DataIntegrityViolationException e) {
+		if (!(e instanceof DuplicateKeyException)) {
+			return false;
+		}
+		String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+		return message != null && message.toLowerCase(Locale.ROOT).contains("email");
+	}
+
+	private List<ImportRowResult> insertChunk(List<ParsedRow> rows) {
+		Set<String> emails = new HashSet<>();
+		rows.stream().filter(row -> row.error() == null).forEach(row -> emails.add(row.request().email()));
+		Set<String> taken = emails.isEmpty() ? new HashSet<>() : new HashSet<>(userRepository.findExistingEmails(emails));
+
+		LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+		Timestamp timestamp = Timestamp.valueOf(now);
+		String version = UserService.version(0);
+		Instant occurredAt = Instant.now();
+
+		List<ImportRowResult> results = new ArrayList<>(rows.size());
+		List<Object[]> inserts = new ArrayList<>(rows.size());
+		List<UserChangedEvent> events = new ArrayList<>(rows.size());
+		for (ParsedRow row : rows) {
+			if (row.error() != null) {
+				results.add(new ImportRowResult(row.line(), INVALID, null, null, row.error()));
+				continue;
+			}
+			CreateUserRequest request = row.request();
+			// taken also collects emails created earlier in this chunk, so in-file duplicates are caught too.
+			if (!taken.add(request.email())) {
+				results.add(new ImportRowResult(row.line(), DUPLICATE_EMAIL, null, request.email(), null));
+				continue;
+			}
+			String userId = UUID.randomUUID().toString();
+			inserts.add(new Object[] {userId, request.email(), request.name(), request.phone(), KycStatus.PENDING.name(), timestamp, timestamp});
+			events.add(new UserChangedEvent("USER_CREATED", userId, KycStatus.PENDING, request.email(), version, occurredAt));
+			results.add(new ImportRowResult(row.line(), CREATED, userId, request.email(), null));
+		}
+
+		if (!inserts.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_USER, inserts);
+			outboxService.appendAll(events);
+		}
+		return results;
+	}
+
+	private void writeResults(List<ImportRowResult> results, OutputStream out, ImportProgress progress, long start) throws IOException {
+		for (ImportRowResult result : results) {
+			out.write(objectMapper.writeValueAsBytes(result));
+			out.write('\n');
+			progress.record(result.status());
+			meterRegistry.counter("user.import.rows", "result", result.status().toLowerCase(Locale.ROOT)).increment();
+		}
+		out.flush();
+		if (progress.rows / PROGRESS_LOG_EVERY != (progress.rows - results.size()) / PROGRESS_LOG_EVERY) {
+			log.info("UserImportService: {} rows processed ({} created) at {} rows/s", progress.rows, progress.created, rate(progress.rows, start));
+		}
+	}
+
+	private static long rate(long rows, long startNanos) {
+		double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+		return seconds > 0 ? Math.round(rows / seconds) : rows;
+	}
+
+	// error is set for lines that failed parsing or validation; request may then be null.
+	private record ParsedRow(long line, CreateUserRequest request, String error) {}
+
+	public record ImportSummary(long rows, long created, long duplicates, long invalid, long failed) {}
+
+	private static final class ImportProgress {
+		private long rows;
+		private long created;
+		private long duplicates;
+		private long invalid;
+		private long failed;
+
+		void record(String status) {
+			rows++;
+			switch (status) {
+				case CREATED -> created++;
+				case DUPLICATE_EMAIL -> duplicates++;
+				case INVALID -> invalid++;
+				default -> failed++;
+			}
+		}
+
+		ImportSummary summary() {
+			return new ImportSummary(rows, created, duplicates, invalid, failed);
+		}
+	}
+}
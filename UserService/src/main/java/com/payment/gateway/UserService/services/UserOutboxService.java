@@ -0,0 +1,119 @@
+package com.payment.gateway.UserService.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.gateway.UserService.dto.UserChangedEvent;
+import com.payment.gateway.UserService.dto.UserOutboxWrittenEvent;
+import com.payment.gateway.UserService.models.UserOutboxEntity;
+import com.payment.gateway.UserService.repositories.UserOutboxRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Transactional outbox for user change events (same lifecycle as TransactionService's OutboxService).
+ *
+ * append() runs inside the transaction that changes the user, so an event exists if and only if the
+ * change committed. The relay claims rows with FOR UPDATE SKIP LOCKED plus a lease in a short
+ * transaction of its own, publishes outside it and writes the outcome back in one UPDATE per outcome.
+ */
+@Service
+public class UserOutboxService {
+
+	// Matches the default varchar(255) Hibernate generates for last_error.
+	private static final int MAX_ERROR_LENGTH = 255;
+
+	private final UserOutboxRepository outboxRepository;
+	private final ObjectMapper objectMapper;
+	private final ApplicationEventPublisher eventPublisher;
+
+	public UserOutboxService(UserOutboxRepository outboxRepository,
+			ObjectMapper objectMapper,
+			ApplicationEventPublisher eventPublisher) {
+		this.outboxRepository = outboxRepository;
+		this.objectMapper = objectMapper;
+		this.eventPublisher = eventPublisher;
+	}
+
+	// Write the event in the caller's transaction; the relay is woken once that transaction commits.
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void append(UserChangedEvent event) {
+		outboxRepository.save(toEntity(event));
+		eventPublisher.publishEvent(new UserOutboxWrittenEvent(event.userId()));
+	}
+
+	// Bulk variant for imports: the rows join one JDBC batch (sequence ids) and the relay is woken once.
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void appendAll(List<UserChangedEvent> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+		outboxRepository.saveAll(events.stream().map(this::toEntity).toList());
+		eventPublisher.publishEvent(new UserOutboxWrittenEvent(events.get(0).userId()));
+	}
+
+	private UserOutboxEntity toEntity(UserChangedEvent event) {
+		UserOutboxEntity outbox = new UserOutboxEntity();
+		outbox.setAggregateId(event.userId());
+		outbox.setEventType(event.eventType());
+		try {
+			outbox.setPayload(objectMapper.writeValueAsString(event));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize user event for " + event.userId(), e);
+		}
+		return outbox;
+	}
+
+	// Claim up to batchSize pending rows for the given relay instance, ordered by id.
+	@Transactional
+	public List<UserOutboxEntity> claimBatch(String owner, int batchSize, Duration lease) {
+		LocalDateTime now = LocalDateTime.now();
+		List<Long> ids = outboxRepository.lockClaimableIds(now, batchSize);
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		outboxRepository.lease(ids, owner, now.plus(lease));
+
+		List<UserOutboxEntity> claimed = new ArrayList<>(outboxRepository.findAllById(ids));
+		claimed.sort(Comparator.comparing(UserOutboxEntity::getId));
+		return claimed;
+	}
+
+	@Transactional
+	public int markPublished(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		return outboxRepository.markPublished(ids, LocalDateTime.now());
+	}
+
+	@Transactional
+	public int markFailed(Collection<Long> ids, String owner, String error) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		String truncated = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+		return outboxRepository.markFailed(ids, owner, truncated);
+	}
+
+	@Transactional(readOnly = true)
+	public long pendingRows() {
+		return outboxRepository.countByProcessedFalse();
+	}
+
+	// Age of the oldest unpublished event, zero when nothing is pending.
+	@Transactional(readOnly = true)
+	public Duration oldestPendingAge() {
+		return outboxRepository.findOldestPendingCreatedAt()
+				.map(createdAt -> Duration.between(createdAt, LocalDateTime.now()))
+				.orElse(Duration.ZERO);
+	}
+}
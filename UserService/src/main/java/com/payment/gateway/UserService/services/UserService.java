@@ -1,8 +1,11 @@
 package com.payment.gateway.UserService.services;
 
+import com.payment.gateway.UserService.dto.BatchGetUsersResponse;
 import com.payment.gateway.UserService.dto.CreateUserRequest;
 import com.payment.gateway.UserService.dto.UpdateUserRequest;
+import com.payment.gateway.UserService.dto.UserChangedEvent;
 import com.payment.gateway.UserService.dto.UserResponse;
+import com.payment.gateway.UserService.dto.VersionedUser;
 import com.payment.gateway.UserService.exception.DuplicateEmailException;
 import com.payment.gateway.UserService.exception.UserNotFoundException;
 import com.payment.gateway.UserService.models.KycStatus;
@@ -11,15 +14,22 @@ import com.payment.gateway.UserService.repositories.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class UserService {
 
 	private final UserRepository userRepository;
+	private final UserOutboxService outboxService;
 
-	public UserService(UserRepository userRepository) {
+	public UserService(UserRepository userRepository, UserOutboxService outboxService) {
 		this.userRepository = userRepository;
+		this.outboxService = outboxService;
 	}
 
 	// Validate uniqueness, persist UserEntity with a generated userId and return a UserResponse.
@@ -36,7 +46,9 @@ public class UserService {
 		user.setPhone(request.phone());
 		user.setKycStatus(KycStatus.PENDING);
 
-		return toResponse(userRepository.save(user));
+		UserEntity saved = userRepository.save(user);
+		outboxService.append(changeEvent("USER_CREATED", saved));
+		return toResponse(saved);
 	}
 
 	// Load user by userId and map to UserResponse; throw UserNotFoundException if absent.
@@ -47,29 +59,81 @@ public class UserService {
 				.orElseThrow(() -> new UserNotFoundException(userId));
 	}
 
+	// Same as getByUserId, plus the version the ETag is built from.
+	@Transactional(readOnly = true)
+	public VersionedUser getVersionedByUserId(String userId) {
+		return userRepository.findByUserId(userId)
+				.map(user -> new VersionedUser(toResponse(user), version(user)))
+				.orElseThrow(() -> new UserNotFoundException(userId));
+	}
+
+	// Current version of a user without loading it, for If-None-Match checks.
+	@Transactional(readOnly = true)
+	public String getVersion(String userId) {
+		return userRepository.findVersionByUserId(userId)
+				.map(UserService::version)
+				.orElseThrow(() -> new UserNotFoundException(userId));
+	}
+
+	// Load all requested users with a single IN query; unknown ids are reported instead of failing the batch.
+	@Transactional(readOnly = true)
+	public BatchGetUsersResponse batchGet(List<String> userIds) {
+		Set<String> requested = new LinkedHashSet<>(userIds);
+		List<UserResponse> users = userRepository.findByUserIdIn(requested).stream()
+				.map(this::toResponse)
+				.toList();
+		users.forEach(user -> requested.remove(user.userId()));
+		return new BatchGetUsersResponse(users, List.copyOf(requested));
+	}
+
 	// Apply partial updates to the UserEntity and persist; ensure email uniqueness when changed.
+	// A real change also writes a USER_UPDATED event to the outbox in the same transaction.
 	@Transactional
 	public UserResponse update(String userId, UpdateUserRequest request) {
 		UserEntity user = userRepository.findByUserId(userId)
 				.orElseThrow(() -> new UserNotFoundException(userId));
 
+		boolean changed = false;
 		if (request.email() != null && !request.email().equals(user.getEmail())) {
 			if (userRepository.existsByEmail(request.email())) {
 				throw new DuplicateEmailException(request.email());
 			}
 			user.setEmail(request.email());
+			changed = true;
 		}
-		if (request.name() != null) {
+		if (request.name() != null && !request.name().equals(user.getName())) {
 			user.setName(request.name());
+			changed = true;
 		}
-		if (request.phone() != null) {
+		if (request.phone() != null && !Objects.equals(request.phone(), user.getPhone())) {
 			user.setPhone(request.phone());
+			changed = true;
 		}
-		if (request.kycStatus() != null) {
+		if (request.kycStatus() != null && request.kycStatus() != user.getKycStatus()) {
 			user.setKycStatus(request.kycStatus());
+			changed = true;
+		}
+
+		if (!changed) {
+			return toResponse(user);
 		}
+		// Flush so Hibernate has incremented the version the event carries.
+		UserEntity saved = userRepository.saveAndFlush(user);
+		outboxService.append(changeEvent("USER_UPDATED", saved));
+		return toResponse(saved);
+	}
+
+	private static UserChangedEvent changeEvent(String eventType, UserEntity user) {
+		return new UserChangedEvent(eventType, user.getUserId(), user.getKycStatus(), user.getEmail(), version(user), Instant.now());
+	}
+
+	private static String version(UserEntity user) {
+		return version(user.getVersion());
+	}
 
-		return toResponse(userRepository.save(user));
+	// The JPA @Version counter; a new user starts at 0.
+	static String version(long version) {
+		return Long.toString(version);
 	}
 
 	private UserResponse toResponse(UserEntity user) {
@@ -0,0 +1,109 @@
+package com.payment.gateway.UserService;
+
+import com.payment.gateway.UserService.dto.BatchGetUsersRequest;
+import com.payment.gateway.UserService.dto.BatchGetUsersResponse;
+import com.payment.gateway.UserService.dto.UserResponse;
+import com.payment.gateway.UserService.models.KycStatus;
+import com.payment.gateway.UserService.models.UserEntity;
+import com.payment.gateway.UserService.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lookups/sec of GET /api/v1/users/{userId} (one request and one query per user) against
+ * POST /api/v1/users:batchGet (BATCH users per request, one IN query), over HTTP against H2.
+ *
+ * Opt-in: ./mvnw -pl userservice test -Dtest=UserBatchGetBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:user_bench;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"user.outbox.relay.enabled=false",
+		"spring.jpa.show-sql=false"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserBatchGetBenchmarkTests {
+
+	private static final Logger log = LoggerFactory.getLogger(UserBatchGetBenchmarkTests.class);
+
+	private static final int USERS = 2_000;
+	private static final int BATCH = 100;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private final List<String> userIds = new ArrayList<>(USERS);
+
+	@BeforeEach
+	void seedUsers() {
+		userRepository.deleteAll();
+		userIds.clear();
+		List<UserEntity> users = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			UserEntity user = new UserEntity();
+			user.setUserId(UUID.randomUUID().toString());
+			user.setEmail("bench-" + i + "@example.com");
+			user.setName("Bench User " + i);
+			user.setKycStatus(KycStatus.VERIFIED);
+			users.add(user);
+			userIds.add(user.getUserId());
+		}
+		userRepository.saveAll(users);
+	}
+
+	@Test
+	void singleVersusBatchLookups() {
+		// Warm up both paths (JIT, connection pool, HTTP client).
+		for (int i = 0; i < 200; i++) {
+			restTemplate.getForEntity("/api/v1/users/{userId}", UserResponse.class, userIds.get(i));
+		}
+		batchGet(userIds.subList(0, BATCH));
+
+		double single = measure(() -> {
+			for (String userId : userIds) {
+				UserResponse user = restTemplate.getForObject("/api/v1/users/{userId}", UserResponse.class, userId);
+				assertThat(user).isNotNull();
+			}
+		});
+		double batched = measure(() -> {
+			for (int from = 0; from < USERS; from += BATCH) {
+				BatchGetUsersResponse response = batchGet(userIds.subList(from, Math.min(from + BATCH, USERS)));
+				assertThat(response.notFound()).isEmpty();
+			}
+		});
+
+		log.info("User lookup benchmark: single={} lookups/s, batchGet({})={} lookups/s, speedup={}x",
+				String.format("%.0f", single), BATCH, String.format("%.0f", batched), String.format("%.2f", batched / single));
+	}
+
+	private BatchGetUsersResponse batchGet(List<String> ids) {
+		return restTemplate.postForObject("/api/v1/users:batchGet", new BatchGetUsersRequest(ids), BatchGetUsersResponse.class);
+	}
+
+	// Returns user lookups per second.
+	private double measure(Runnable work) {
+		long start = System.nanoTime();
+		work.run();
+		return USERS / ((System.nanoTime() - start) / 1_000_000_000.0);
+	}
+}
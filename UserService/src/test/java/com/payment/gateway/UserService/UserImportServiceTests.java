@@ -0,0 +1,98 @@
+package com.payment.gateway.UserService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.gateway.UserService.dto.ImportRowResult;
+import com.payment.gateway.UserService.repositories.UserRepository;
+import com.payment.gateway.UserService.services.UserImportService;
+import com.payment.gateway.UserService.services.UserImportService.ImportSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// One bad row must not take the rest of its chunk down with it.
+@SpringBootTest
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:user_import_test;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"user.outbox.relay.enabled=false",
+		"spring.jpa.show-sql=false"
+})
+class UserImportServiceTests {
+
+	@Autowired
+	private UserImportService userImportService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void clearUsers() {
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void oversizedAndDuplicateRowsFailAloneInTheirChunk() throws IOException {
+		String input = String.join("\n",
+				"{\"email\":\"a@example.com\",\"name\":\"A\"}",
+				"{\"email\":\"b@example.com\",\"name\":\"B\",\"phone\":\"" + "9".repeat(300) + "\"}",
+				"{\"email\":\"a@example.com\",\"name\":\"A again\"}",
+				"{\"email\":\"c@example.com\",\"name\":\"C\"}");
+
+		List<ImportRowResult> results = new ArrayList<>();
+		ImportSummary summary = runImport(input, results);
+
+		assertThat(results).extracting(ImportRowResult::status)
+				.containsExactly("CREATED", "INVALID", "DUPLICATE_EMAIL", "CREATED");
+		assertThat(results.get(1).error()).contains("phone");
+		assertThat(summary.created()).isEqualTo(2);
+		assertThat(userRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void emailTakenBeforeTheImportIsReportedAsDuplicate() throws IOException {
+		runImport("{\"email\":\"taken@example.com\",\"name\":\"First\"}", new ArrayList<>());
+
+		List<ImportRowResult> results = new ArrayList<>();
+		runImport("{\"email\":\"taken@example.com\",\"name\":\"Second\"}\n{\"email\":\"new@example.com\",\"name\":\"New\"}", results);
+
+		assertThat(results).extracting(ImportRowResult::status).containsExactly("DUPLICATE_EMAIL", "CREATED");
+	}
+
+	@Test
+	void nullLineIsInvalidAndTheImportCarriesOn() throws IOException {
+		List<ImportRowResult> results = new ArrayList<>();
+		runImport("null\n{\"email\":\"after-null@example.com\",\"name\":\"After\"}", results);
+
+		assertThat(results).extracting(ImportRowResult::status).containsExactly("INVALID", "CREATED");
+		assertThat(results.get(0).error()).isEqualTo("expected a JSON object");
+	}
+
+	private ImportSummary runImport(String ndjson, List<ImportRowResult> results) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImportSummary summary = userImportService.importUsers(
+				new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), output);
+		for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+			if (!line.isBlank()) {
+				results.add(objectMapper.readValue(line, ImportRowResult.class));
+			}
+		}
+		return summary;
+	}
+}
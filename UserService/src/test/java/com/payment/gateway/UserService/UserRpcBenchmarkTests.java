@@ -0,0 +1,122 @@
+package com.payment.gateway.UserService;
+
+import com.payment.gateway.UserRpc.UserRecord;
+import com.payment.gateway.UserRpc.UserRpcClient;
+import com.payment.gateway.UserService.dto.UserResponse;
+import com.payment.gateway.UserService.models.KycStatus;
+import com.payment.gateway.UserService.models.UserEntity;
+import com.payment.gateway.UserService.repositories.UserRepository;
+import com.payment.gateway.UserService.rpc.UserRpcEndpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lookups/sec of GET /api/v1/users/{userId} (HTTP/1.1 + JSON) against the binary RPC channel (UserRpcClient,
+ * one persistent connection), one lookup at a time, against H2. Also checks the binary answers match REST.
+ *
+ * Opt-in: ./mvnw -pl userservice test -Dtest=UserRpcBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:user_rpc_bench;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"user.outbox.relay.enabled=false",
+		"spring.jpa.show-sql=false",
+		"user.rpc.enabled=true",
+		"user.rpc.port=0"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserRpcBenchmarkTests {
+
+	private static final Logger log = LoggerFactory.getLogger(UserRpcBenchmarkTests.class);
+
+	private static final int USERS = 2_000;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserRpcEndpoint rpcEndpoint;
+
+	private final List<String> userIds = new ArrayList<>(USERS);
+	private UserRpcClient rpcClient;
+
+	@BeforeEach
+	void seedUsersAndConnect() {
+		userRepository.deleteAll();
+		userIds.clear();
+		List<UserEntity> users = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			UserEntity user = new UserEntity();
+			user.setUserId(UUID.randomUUID().toString());
+			user.setEmail("rpc-" + i + "@example.com");
+			user.setName("Rpc User " + i);
+			user.setKycStatus(KycStatus.VERIFIED);
+			users.add(user);
+			userIds.add(user.getUserId());
+		}
+		userRepository.saveAll(users);
+
+		rpcClient = new UserRpcClient("localhost", rpcEndpoint.port(), 1000, 5000, 1000);
+	}
+
+	@AfterEach
+	void disconnect() {
+		rpcClient.close();
+	}
+
+	@Test
+	void restVersusBinaryLookups() {
+		UserResponse viaRest = restTemplate.getForObject("/api/v1/users/{userId}", UserResponse.class, userIds.get(0));
+		assertThat(rpcClient.getUser(userIds.get(0))).contains(new UserRecord(viaRest.userId(), viaRest.email(),
+				viaRest.name(), viaRest.phone(), viaRest.kycStatus().name()));
+		assertThat(rpcClient.getUser("no-such-user")).isEmpty();
+
+		// Warm up both paths (JIT, connection pool, HTTP client).
+		for (int i = 0; i < 200; i++) {
+			restTemplate.getForEntity("/api/v1/users/{userId}", UserResponse.class, userIds.get(i));
+			rpcClient.getUser(userIds.get(i));
+		}
+
+		double rest = measure(() -> {
+			for (String userId : userIds) {
+				assertThat(restTemplate.getForObject("/api/v1/users/{userId}", UserResponse.class, userId)).isNotNull();
+			}
+		});
+		double binary = measure(() -> {
+			for (String userId : userIds) {
+				assertThat(rpcClient.getUser(userId)).isPresent();
+			}
+		});
+
+		log.info("User lookup benchmark: rest={} lookups/s, binary={} lookups/s, speedup={}x",
+				String.format("%.0f", rest), String.format("%.0f", binary), String.format("%.2f", binary / rest));
+	}
+
+	// Returns user lookups per second.
+	private double measure(Runnable work) {
+		long start = System.nanoTime();
+		work.run();
+		return USERS / ((System.nanoTime() - start) / 1_000_000_000.0);
+	}
+}